@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Handles every request on its own virtual thread instead of the Tomcat worker pool
+ * when {@code filmorate.server.virtual-threads} is set, so blocking storage calls no longer cap concurrency
+ * at {@code server.tomcat.threads.max}.
+ * <p>
+ * The project is still built for Java 11, so the executor is looked up reflectively
+ * and the application refuses to start with this option on a runtime older than Java 21.
+ * The executor is a bean closed on shutdown, which waits for the requests still running.
+ */
+@Configuration
+@ConditionalOnProperty(value = "filmorate.server.virtual-threads", havingValue = "true")
+public class VirtualThreadsConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public ExecutorService virtualThreadsExecutor() {
+        return newVirtualThreadPerTaskExecutor();
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadsProtocolHandlerCustomizer(
+            ExecutorService virtualThreadsExecutor) {
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadsExecutor);
+    }
+
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("filmorate.server.virtual-threads requires Java 21 or newer, running on "
+                    + Runtime.version(), e);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to create a virtual thread executor", e);
+        }
+    }
+}
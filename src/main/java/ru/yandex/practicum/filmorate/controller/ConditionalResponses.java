@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Conditional GET support. ETags are derived from version counters, so a request whose {@code If-None-Match}
+ * is still current is answered with 304 before anything is read or serialized.
+ */
+final class ConditionalResponses {
+
+    private ConditionalResponses() {
+    }
+
+    /**
+     * @param representation distinguishes responses of one resource, e.g. by query parameters
+     */
+    static String etag(String representation, long version) {
+        return "\"" + representation + "-" + Long.toHexString(version) + "\"";
+    }
+
+    /**
+     * @return the already serialized body, written to the response as is
+     */
+    static ResponseEntity<byte[]> json(String etag, byte[] body) {
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+}
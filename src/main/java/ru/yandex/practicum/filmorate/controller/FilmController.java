@@ -1,43 +1,192 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.exception.BadRequestException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
+import ru.yandex.practicum.filmorate.model.Like;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/films")
 public class FilmController {
     private static final Logger log = LoggerFactory.getLogger(FilmController.class);
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_SEARCH_RESULTS = 100;
     private final FilmService filmService;
+    private final ObjectWriter filmWriter;
+    private final ObjectWriter summaryWriter;
+    private final Map<FilmView, PopularFilmsResponses> popularResponses = new EnumMap<>(FilmView.class);
 
-    public FilmController(FilmService filmService) {
+    public FilmController(FilmService filmService, ObjectMapper objectMapper) {
         this.filmService = filmService;
+        this.filmWriter = objectMapper.writerFor(Film.class);
+        this.summaryWriter = objectMapper.writerFor(FilmSummary.class);
+        for (FilmView view : FilmView.values()) {
+            popularResponses.put(view, new PopularFilmsResponses(filmService, objectMapper, view, 64));
+        }
     }
 
+    /**
+     * All films, or only those in the given ranges of release date and duration; every bound is inclusive
+     * and optional. Films are summarized unless view=full.
+     */
     @GetMapping
-    public List<Film> findAll() {
-        List<Film> films = filmService.findAllFilms();
-        log.info("Current number of films: {}", films.size());
+    public List<?> findAll(
+            @RequestParam(value = "releasedFrom", required = false) String releasedFrom,
+            @RequestParam(value = "releasedTo", required = false) String releasedTo,
+            @RequestParam(value = "minDuration", required = false) Integer minDuration,
+            @RequestParam(value = "maxDuration", required = false) Integer maxDuration,
+            @RequestParam(value = "view", required = false) String view
+    ) {
+        FilmView filmView = FilmView.parse(view, FilmView.SUMMARY);
+        return filmView.of(findFilms(releasedFrom, releasedTo, minDuration, maxDuration));
+    }
+
+    private List<Film> findFilms(String releasedFrom, String releasedTo, Integer minDuration, Integer maxDuration) {
+        if (releasedFrom == null && releasedTo == null && minDuration == null && maxDuration == null) {
+            List<Film> films = filmService.findAllFilms();
+            log.info("Current number of films: {}", films.size());
+            return films;
+        }
+        LocalDate from = parseDate("releasedFrom", releasedFrom);
+        LocalDate to = parseDate("releasedTo", releasedTo);
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new BadRequestException("releasedFrom: " + from + " should not be after releasedTo: " + to);
+        }
+        if (minDuration != null && maxDuration != null && minDuration > maxDuration) {
+            throw new BadRequestException("minDuration: " + minDuration + " should not exceed maxDuration: "
+                    + maxDuration);
+        }
+        List<Film> films = filmService.findFilms(from, to, minDuration, maxDuration);
+        log.info("Current number of matching films: {}", films.size());
         return films;
     }
 
+    @GetMapping(params = "limit")
+    public List<?> findPage(
+            @RequestParam(value = "after", required = false, defaultValue = "0") int afterId,
+            @RequestParam("limit") int limit,
+            @RequestParam(value = "view", required = false) String view
+    ) {
+        FilmView filmView = FilmView.parse(view, FilmView.SUMMARY);
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new BadRequestException("limit: " + limit + " should be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return filmView.of(filmService.findFilmsPage(afterId, limit));
+    }
+
+    @GetMapping(value = "/stream", produces = NdjsonResponses.MEDIA_TYPE)
+    public StreamingResponseBody streamAll(@RequestParam(value = "view", required = false) String view) {
+        if (FilmView.parse(view, FilmView.SUMMARY) == FilmView.FULL) {
+            return NdjsonResponses.of(filmService.streamAllFilms(), filmWriter);
+        }
+        return NdjsonResponses.of(filmService.streamAllFilms().map(FilmSummary::of), summaryWriter);
+    }
+
+    @GetMapping("/search")
+    public List<?> search(
+            @RequestParam("q") String query,
+            @RequestParam(value = "limit", defaultValue = "10") int limit,
+            @RequestParam(value = "view", required = false) String view
+    ) {
+        FilmView filmView = FilmView.parse(view, FilmView.SUMMARY);
+        if (query.isBlank()) {
+            throw new BadRequestException("q: should contain a word");
+        }
+        if (limit <= 0 || limit > MAX_SEARCH_RESULTS) {
+            throw new BadRequestException("limit: " + limit + " should be between 1 and " + MAX_SEARCH_RESULTS);
+        }
+        List<Film> films = filmService.searchFilms(query, limit);
+        log.info("Current number of films found by \"{}\": {}", query, films.size());
+        return filmView.of(films);
+    }
+
+    /**
+     * Answers 304 Not Modified if the film has not changed since the ETag in If-None-Match.
+     * The film is in full unless view=summary.
+     */
     @GetMapping("/{id}")
-    public Film findFilmById(@PathVariable("id") int filmId) {
-        return filmService.getFilmById(filmId);
+    public Object findFilmById(
+            @PathVariable("id") int filmId,
+            @RequestParam(value = "view", required = false) String view,
+            WebRequest request
+    ) {
+        FilmView filmView = FilmView.parse(view, FilmView.FULL);
+        String representation = "film-" + filmView.name().toLowerCase(Locale.ROOT);
+        if (request.checkNotModified(ConditionalResponses.etag(representation, filmService.getFilmVersion(filmId)))) {
+            return null;
+        }
+        return filmView.of(filmService.getFilmById(filmId));
     }
 
+    /**
+     * Answers 304 Not Modified if the top films and their order are as in the ETag in If-None-Match and none of them
+     * has changed, otherwise serves a body serialized once for them. Rankings within a window change as time passes,
+     * so they are always served in full. Films are summarized unless view=full.
+     */
     @GetMapping("/popular")
-    public List<Film> findMostPopularFilms(
-            @RequestParam(value = "count", required = false, defaultValue = "10") int count
+    public ResponseEntity<?> findMostPopularFilms(
+            @RequestParam(value = "count", required = false, defaultValue = "10") int count,
+            @RequestParam(value = "window", required = false) String window,
+            @RequestParam(value = "view", required = false) String view,
+            WebRequest request
     ) {
-        return filmService.getPopularFilms(count);
+        FilmView filmView = FilmView.parse(view, FilmView.SUMMARY);
+        if (window != null) {
+            return ResponseEntity.ok(filmView.of(findTrendingFilms(count, window)));
+        }
+        PopularFilmsResponses.Body body = popularResponses.get(filmView).body(count);
+        if (request.checkNotModified(body.etag)) {
+            return null;
+        }
+        return ConditionalResponses.json(body.etag, body.json);
+    }
+
+    /**
+     * @param window e.g. 24h, films are ranked by likes gained within it instead of all likes
+     */
+    private List<Film> findTrendingFilms(int count, String window) {
+        Duration duration;
+        try {
+            duration = DurationStyle.detectAndParse(window);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("window: " + window + " is not a duration, e.g. 24h");
+        }
+        return filmService.getTrendingFilms(duration, count);
+    }
+
+    /**
+     * Ids of users who liked the film, ascending, in pages of at most limit ids after the given one.
+     */
+    @GetMapping("/{id}/likes")
+    public int[] findLikes(
+            @PathVariable("id") int filmId,
+            @RequestParam(value = "after", required = false, defaultValue = "0") int afterUserId,
+            @RequestParam(value = "limit", required = false, defaultValue = "100") int limit
+    ) {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new BadRequestException("limit: " + limit + " should be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return filmService.getLikes(filmId, afterUserId, limit);
     }
 
     @PostMapping
@@ -74,6 +223,31 @@ public class FilmController {
         filmService.deleteLike(filmId, userId);
     }
 
+    @PutMapping("/likes")
+    public BatchResult addLikes(@RequestBody List<Like> likes) {
+        BatchResult result = filmService.addLikes(likes);
+        log.debug("Batch of {} likes added, {} failed", result.getApplied(), result.getFailures().size());
+        return result;
+    }
+
+    @DeleteMapping("/likes")
+    public BatchResult deleteLikes(@RequestBody List<Like> likes) {
+        BatchResult result = filmService.deleteLikes(likes);
+        log.debug("Batch of {} likes deleted, {} failed", result.getApplied(), result.getFailures().size());
+        return result;
+    }
+
+    private static LocalDate parseDate(String name, String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException(name + ": " + value + " is not a date, e.g. 2020-12-31");
+        }
+    }
+
     private void validate(Film film) {
         if (film.getName() == null || film.getName().isEmpty()) {
             throw new BadRequestException("name: " + film.getName() + " is incorrect");
@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import ru.yandex.practicum.filmorate.exception.BadRequestException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Representation of films selected by the {@code view} request parameter.
+ */
+enum FilmView {
+    /**
+     * {@link FilmSummary}, the default of list endpoints; the likes are paged by {@code GET /films/{id}/likes}.
+     */
+    SUMMARY,
+    /**
+     * {@link Film} with the ids of all its likes, the default of a single film.
+     */
+    FULL;
+
+    static FilmView parse(String view, FilmView defaultView) {
+        if (view == null) {
+            return defaultView;
+        }
+        try {
+            return valueOf(view.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("view: " + view + " should be summary or full");
+        }
+    }
+
+    Object of(Film film) {
+        return this == SUMMARY ? FilmSummary.of(film) : film;
+    }
+
+    List<?> of(List<Film> films) {
+        return this == SUMMARY ? films.stream().map(FilmSummary::of).collect(Collectors.toList()) : films;
+    }
+}
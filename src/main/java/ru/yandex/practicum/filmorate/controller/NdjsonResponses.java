@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes entities as newline-delimited JSON while the source stream is consumed,
+ * so no intermediate list of the whole catalogue is ever built.
+ */
+final class NdjsonResponses {
+    static final String MEDIA_TYPE = "application/x-ndjson";
+
+    private NdjsonResponses() {
+    }
+
+    static <T> StreamingResponseBody of(Stream<T> items, ObjectWriter writer) {
+        return outputStream -> {
+            try (items) {
+                Iterator<T> iterator = items.iterator();
+                while (iterator.hasNext()) {
+                    outputStream.write(writer.writeValueAsBytes(iterator.next()));
+                    outputStream.write('\n');
+                }
+            }
+        };
+    }
+}
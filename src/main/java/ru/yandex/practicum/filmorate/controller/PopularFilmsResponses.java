@@ -0,0 +1,97 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Serialized bodies of {@code GET /films/popular} in one {@link FilmView}, one per count.
+ * <p>
+ * A body stays current until a film in it changes or the films in the top, or their order, change.
+ * While no film has changed at all it is served without reading anything. Otherwise only the ids of the top
+ * are read and compared, together with the versions of those films, with the ones the body was serialized from,
+ * so likes of films that stay out of the top neither serialize the body again nor change its ETag.
+ * Versions are read before the films they describe, so a body is never older than its ETag.
+ */
+final class PopularFilmsResponses {
+    private final FilmService filmService;
+    private final ObjectMapper objectMapper;
+    private final FilmView view;
+    private final Cache<Integer, Body> bodies;
+
+    PopularFilmsResponses(FilmService filmService, ObjectMapper objectMapper, FilmView view, long maximumSize) {
+        this.filmService = filmService;
+        this.objectMapper = objectMapper;
+        this.view = view;
+        this.bodies = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    /**
+     * @return the current body of the top count films
+     */
+    Body body(int count) {
+        long version = filmService.getPopularFilmsVersion();
+        Body body = bodies.getIfPresent(count);
+        if (body != null && body.version == version) {
+            return body;
+        }
+        List<Integer> filmIds = filmService.getPopularFilms(count).stream()
+                .map(Film::getId)
+                .collect(Collectors.toList());
+        long[] filmVersions = filmIds.stream()
+                .mapToLong(filmService::getFilmVersion)
+                .toArray();
+        if (body != null && body.filmIds.equals(filmIds) && Arrays.equals(body.filmVersions, filmVersions)) {
+            body = new Body(version, body.filmIds, body.filmVersions, body.etag, body.json);
+        } else {
+            body = new Body(version, filmIds, filmVersions, etag(count, filmIds, filmVersions),
+                    serialize(view.of(filmService.getFilms(filmIds))));
+        }
+        bodies.put(count, body);
+        return body;
+    }
+
+    private String etag(int count, List<Integer> filmIds, long[] filmVersions) {
+        long fingerprint = 0;
+        for (int i = 0; i < filmIds.size(); i++) {
+            fingerprint = (fingerprint * 31 + filmIds.get(i)) * 31 + filmVersions[i];
+        }
+        return ConditionalResponses.etag("popular-" + view.name().toLowerCase(Locale.ROOT) + "-" + count,
+                fingerprint);
+    }
+
+    private byte[] serialize(List<?> films) {
+        try {
+            return objectMapper.writeValueAsBytes(films);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static final class Body {
+        private final long version;
+        private final List<Integer> filmIds;
+        private final long[] filmVersions;
+        final String etag;
+        final byte[] json;
+
+        private Body(long version, List<Integer> filmIds, long[] filmVersions, String etag, byte[] json) {
+            this.version = version;
+            this.filmIds = filmIds;
+            this.filmVersions = filmVersions;
+            this.etag = etag;
+            this.json = json;
+        }
+    }
+}
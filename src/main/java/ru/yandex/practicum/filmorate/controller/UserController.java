@@ -1,10 +1,16 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.exception.BadRequestException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.UserService;
 
@@ -15,26 +21,68 @@ import java.util.List;
 @RequestMapping("/users")
 public class UserController {
     private static final Logger log = LoggerFactory.getLogger(FilmController.class);
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_RECOMMENDATIONS = 100;
     private final UserService userService;
+    private final ObjectWriter userWriter;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, ObjectMapper objectMapper) {
         this.userService = userService;
+        this.userWriter = objectMapper.writerFor(User.class);
     }
 
+    /**
+     * All users, or only the one with the given email or those with the given login.
+     */
     @GetMapping
-    public List<User> findAll() {
+    public List<User> findAll(
+            @RequestParam(value = "email", required = false) String email,
+            @RequestParam(value = "login", required = false) String login
+    ) {
+        if (email != null) {
+            return userService.findUserByEmail(email)
+                    .filter(user -> login == null || login.equals(user.getLogin()))
+                    .map(List::of)
+                    .orElseGet(List::of);
+        }
+        if (login != null) {
+            return userService.findUsersByLogin(login);
+        }
         List<User> users = userService.findAllUsers();
         log.info("Current number of users: {}", users.size());
         return users;
     }
 
+    @GetMapping(params = "limit")
+    public List<User> findPage(
+            @RequestParam(value = "after", required = false, defaultValue = "0") int afterId,
+            @RequestParam("limit") int limit
+    ) {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new BadRequestException("limit: " + limit + " should be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return userService.findUsersPage(afterId, limit);
+    }
+
+    @GetMapping(value = "/stream", produces = NdjsonResponses.MEDIA_TYPE)
+    public StreamingResponseBody streamAll() {
+        return NdjsonResponses.of(userService.streamAllUsers(), userWriter);
+    }
+
     @GetMapping("/{id}")
     public User findUser(@PathVariable("id") int userId) {
         return userService.getUserById(userId);
     }
 
+    /**
+     * Answers 304 Not Modified if neither the friends of the user nor any of them have changed
+     * since the ETag in If-None-Match.
+     */
     @GetMapping("/{id}/friends")
-    public List<User> findUserFriends(@PathVariable("id") int userId) {
+    public List<User> findUserFriends(@PathVariable("id") int userId, WebRequest request) {
+        if (request.checkNotModified(ConditionalResponses.etag("friends", userService.getUserFriendsVersion(userId)))) {
+            return null;
+        }
         List<User> userFriendsList = userService.getUserFriendsList(userId);
         log.info("Current number of user friends: {}", userFriendsList.size());
         return userFriendsList;
@@ -47,6 +95,26 @@ public class UserController {
         return commonFriendsList;
     }
 
+    @GetMapping("/{id}/friends/common")
+    public List<User> findCommonFriends(@PathVariable("id") int userId, @RequestParam("ids") List<Integer> otherIds) {
+        List<User> commonFriendsList = userService.getCommonFriendsList(userId, otherIds);
+        log.info("Current number of friends common to {} users: {}", otherIds.size() + 1, commonFriendsList.size());
+        return commonFriendsList;
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public List<User> findRecommendations(
+            @PathVariable("id") int userId,
+            @RequestParam(value = "limit", defaultValue = "10") int limit
+    ) {
+        if (limit <= 0 || limit > MAX_RECOMMENDATIONS) {
+            throw new BadRequestException("limit: " + limit + " should be between 1 and " + MAX_RECOMMENDATIONS);
+        }
+        List<User> recommendations = userService.getRecommendations(userId, limit);
+        log.info("Current number of recommended friends: {}", recommendations.size());
+        return recommendations;
+    }
+
     @PostMapping
     public User create(@RequestBody User user) {
         validate(user);
@@ -79,6 +147,13 @@ public class UserController {
         userService.deleteFriend(userId, friendId);
     }
 
+    @PutMapping("/friends")
+    public BatchResult addFriends(@RequestBody List<Friendship> friendships) {
+        BatchResult result = userService.addFriends(friendships);
+        log.debug("Batch of {} friendships added, {} failed", result.getApplied(), result.getFailures().size());
+        return result;
+    }
+
     private void validate(User user) {
         if (user.getName() == null || user.getName().isEmpty()) {
             user.setName(user.getLogin());
@@ -89,6 +164,11 @@ public class UserController {
         if (user.getLogin() == null || user.getLogin().isEmpty() || user.getLogin().contains(" ")) {
             throw new BadRequestException("login: " + user.getLogin() + " is incorrect");
         }
+        userService.findUserByEmail(user.getEmail())
+                .filter(other -> other.getId() != user.getId())
+                .ifPresent(other -> {
+                    throw new BadRequestException("email: " + user.getEmail() + " is already used");
+                });
         if (user.getBirthday().isAfter(LocalDate.now())) {
             throw new BadRequestException("birthday:" + user.getBirthday() + " should not be in the future" );
         }
@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.exception.BadRequestException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.util.List;
+
+/**
+ * Films seen from the side of one user.
+ */
+@RestController
+@RequestMapping("/users/{id}")
+public class UserFilmController {
+    private static final Logger log = LoggerFactory.getLogger(UserFilmController.class);
+    private static final int MAX_RECOMMENDATIONS = 100;
+    private final FilmService filmService;
+    private final UserService userService;
+
+    public UserFilmController(FilmService filmService, UserService userService) {
+        this.filmService = filmService;
+        this.userService = userService;
+    }
+
+    /**
+     * Films are summarized unless view=full, as in every list of films.
+     */
+    @GetMapping("/likes")
+    public List<?> findLikedFilms(
+            @PathVariable("id") int userId,
+            @RequestParam(value = "view", required = false) String view
+    ) {
+        FilmView filmView = FilmView.parse(view, FilmView.SUMMARY);
+        userService.getUserById(userId); // ensure that user exists
+        List<Film> films = filmService.getLikedFilms(userId);
+        log.info("Current number of liked films: {}", films.size());
+        return filmView.of(films);
+    }
+
+    @GetMapping("/films/recommended")
+    public List<?> findRecommendedFilms(
+            @PathVariable("id") int userId,
+            @RequestParam(value = "limit", defaultValue = "10") int limit,
+            @RequestParam(value = "view", required = false) String view
+    ) {
+        FilmView filmView = FilmView.parse(view, FilmView.SUMMARY);
+        if (limit <= 0 || limit > MAX_RECOMMENDATIONS) {
+            throw new BadRequestException("limit: " + limit + " should be between 1 and " + MAX_RECOMMENDATIONS);
+        }
+        userService.getUserById(userId); // ensure that user exists
+        List<Film> films = filmService.getRecommendedFilms(userId, limit);
+        log.info("Current number of recommended films: {}", films.size());
+        return filmView.of(films);
+    }
+}
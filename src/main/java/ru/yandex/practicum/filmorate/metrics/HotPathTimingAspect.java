@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Times the public methods of {@code FilmService} and {@code UserService}, the entry points of the controllers,
+ * as {@code filmorate.service} with {@code class}, {@code method} and {@code outcome} tags. Helpers called
+ * on every request, such as the likes index, are not timed. Endpoints are already timed by Spring Boot
+ * as {@code http.server.requests}.
+ * <p>
+ * Off by default: the proxy and the timer update add about 0.5 us to every call, which is more than
+ * a lookup by id costs without them. Storage calls are timed separately by {@link StorageTimingAspect}.
+ */
+@Aspect
+@Component
+@ConditionalOnProperty(value = "filmorate.metrics.hot-path-timers", havingValue = "true")
+public class HotPathTimingAspect {
+    private final MethodTimers timers;
+
+    public HotPathTimingAspect(MeterRegistry meterRegistry) {
+        this.timers = new MethodTimers("filmorate.service", meterRegistry);
+    }
+
+    @Around("execution(public * ru.yandex.practicum.filmorate.service.FilmService.*(..))"
+            + " || execution(public * ru.yandex.practicum.filmorate.service.UserService.*(..))")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return timers.time(joinPoint);
+    }
+}
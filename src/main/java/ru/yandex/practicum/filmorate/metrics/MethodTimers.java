@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers of one name with {@code class}, {@code method} and {@code outcome} tags, used by the timing aspects.
+ * <p>
+ * Timers are looked up once per method and then taken from a map keyed by {@link Method},
+ * so a call costs two {@link System#nanoTime()} reads and one timer update.
+ */
+final class MethodTimers {
+    private static final int SUCCESS = 0;
+    private static final int ERROR = 1;
+
+    private final String name;
+    private final MeterRegistry meterRegistry;
+    private final Map<Method, Timer[]> timers = new ConcurrentHashMap<>();
+
+    MethodTimers(String name, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.meterRegistry = meterRegistry;
+    }
+
+    Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        long start = System.nanoTime();
+        int outcome = ERROR;
+        try {
+            Object result = joinPoint.proceed();
+            outcome = SUCCESS;
+            return result;
+        } finally {
+            Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+            timers.computeIfAbsent(method, this::register)[outcome]
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer[] register(Method method) {
+        Timer[] methodTimers = new Timer[2];
+        methodTimers[SUCCESS] = register(method, "success");
+        methodTimers[ERROR] = register(method, "error");
+        return methodTimers;
+    }
+
+    private Timer register(Method method, String outcome) {
+        return Timer.builder(name)
+                .tag("class", method.getDeclaringClass().getSimpleName())
+                .tag("method", method.getName())
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
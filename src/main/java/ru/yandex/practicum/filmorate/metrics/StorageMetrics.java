@@ -0,0 +1,128 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Stream;
+
+/**
+ * Gauges over the whole storage: number of films, users and likes and the distribution of friend counts.
+ * <p>
+ * Computing them needs a pass over every entity, so the values are recomputed at most once per
+ * {@code filmorate.metrics.storage-refresh-interval}, on the scraping thread, and never on a request path.
+ */
+@Component
+public class StorageMetrics implements MeterBinder {
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final long refreshIntervalNanos;
+    private volatile Snapshot snapshot;
+
+    public StorageMetrics(FilmStorage filmStorage, UserStorage userStorage,
+                          @Value("${filmorate.metrics.storage-refresh-interval:30s}") Duration refreshInterval) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.refreshIntervalNanos = refreshInterval.toNanos();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        gauge(registry, "filmorate.films", "Number of films", snapshot -> snapshot.films);
+        gauge(registry, "filmorate.films.likes", "Number of likes over all films", snapshot -> snapshot.likes);
+        gauge(registry, "filmorate.users", "Number of users", snapshot -> snapshot.users);
+        degreeGauge(registry, "mean", snapshot -> snapshot.meanDegree);
+        degreeGauge(registry, "p50", snapshot -> snapshot.degreePercentile(0.5));
+        degreeGauge(registry, "p99", snapshot -> snapshot.degreePercentile(0.99));
+        degreeGauge(registry, "max", snapshot -> snapshot.degreePercentile(1.0));
+    }
+
+    private void gauge(MeterRegistry registry, String name, String description, ToDoubleFunction<Snapshot> value) {
+        Gauge.builder(name, this, metrics -> value.applyAsDouble(metrics.snapshot()))
+                .description(description)
+                .register(registry);
+    }
+
+    private void degreeGauge(MeterRegistry registry, String statistic, ToDoubleFunction<Snapshot> value) {
+        Gauge.builder("filmorate.users.friends.degree", this, metrics -> value.applyAsDouble(metrics.snapshot()))
+                .description("Distribution of the number of friends per user")
+                .tag("statistic", statistic)
+                .register(registry);
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null || System.nanoTime() - current.takenAt > refreshIntervalNanos) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null || System.nanoTime() - current.takenAt > refreshIntervalNanos) {
+                    current = takeSnapshot();
+                    snapshot = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private Snapshot takeSnapshot() {
+        long films = 0;
+        long likes = 0;
+        try (Stream<Film> stream = filmStorage.streamAll()) {
+            Iterator<Film> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                films++;
+                likes += iterator.next().getLikes().size();
+            }
+        }
+        int[] degrees = new int[16];
+        int users = 0;
+        try (Stream<User> stream = userStorage.streamAll()) {
+            Iterator<User> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                if (users == degrees.length) {
+                    degrees = Arrays.copyOf(degrees, users * 2);
+                }
+                degrees[users++] = iterator.next().getFriends().size();
+            }
+        }
+        degrees = Arrays.copyOf(degrees, users);
+        Arrays.sort(degrees);
+        return new Snapshot(System.nanoTime(), films, likes, degrees);
+    }
+
+    private static final class Snapshot {
+        private final long takenAt;
+        private final long films;
+        private final long likes;
+        private final long users;
+        private final double meanDegree;
+        private final int[] sortedDegrees;
+
+        private Snapshot(long takenAt, long films, long likes, int[] sortedDegrees) {
+            this.takenAt = takenAt;
+            this.films = films;
+            this.likes = likes;
+            this.users = sortedDegrees.length;
+            this.meanDegree = Arrays.stream(sortedDegrees).average().orElse(0);
+            this.sortedDegrees = sortedDegrees;
+        }
+
+        private double degreePercentile(double percentile) {
+            if (sortedDegrees.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile * sortedDegrees.length) - 1;
+            return sortedDegrees[Math.max(0, index)];
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Times every public storage method as {@code filmorate.storage} with {@code class}, {@code method}
+ * and {@code outcome} tags. Opt-in, for profiling a storage: a service call usually makes
+ * several storage calls, each paying for the proxy and the timer.
+ */
+@Aspect
+@Component
+@ConditionalOnProperty(value = "filmorate.metrics.storage-timers", havingValue = "true")
+public class StorageTimingAspect {
+    private final MethodTimers timers;
+
+    public StorageTimingAspect(MeterRegistry meterRegistry) {
+        this.timers = new MethodTimers("filmorate.storage", meterRegistry);
+    }
+
+    @Around("execution(public * ru.yandex.practicum.filmorate.storage..*Storage.*(..))")
+    public Object timeStorage(ProceedingJoinPoint joinPoint) throws Throwable {
+        return timers.time(joinPoint);
+    }
+}
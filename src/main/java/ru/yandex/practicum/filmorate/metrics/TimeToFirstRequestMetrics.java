@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Publishes {@code filmorate.startup.time-to-first-request}: time from the start of the JVM until the first request
+ * to the application, not counting actuator endpoints, has been served. Unlike {@code application.ready.time}
+ * it includes the work deferred past startup, such as lazily initialized beans created by that request.
+ */
+@Component
+public class TimeToFirstRequestMetrics extends OncePerRequestFilter implements MeterBinder {
+    private final AtomicBoolean served = new AtomicBoolean();
+    private volatile double seconds = Double.NaN;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        TimeGauge.builder("filmorate.startup.time-to-first-request", this, TimeUnit.SECONDS, metrics -> metrics.seconds)
+                .description("Time from the start of the JVM until the first request was served")
+                .register(registry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (!served.get() && !request.getRequestURI().startsWith("/actuator") && served.compareAndSet(false, true)) {
+                seconds = (System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime()) / 1000.0;
+            }
+        }
+    }
+}
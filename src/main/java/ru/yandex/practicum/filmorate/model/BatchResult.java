@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a batch request: how many items were applied and why the others were not.
+ */
+@Data
+public class BatchResult {
+    private int applied;
+    private final List<Failure> failures = new ArrayList<>();
+
+    public void addApplied(int count) {
+        applied += count;
+    }
+
+    public void addFailure(int index, String error) {
+        failures.add(new Failure(index, error));
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Failure {
+        /**
+         * position of the failed item in the request
+         */
+        private final int index;
+        private final String error;
+    }
+}
@@ -2,10 +2,9 @@ package ru.yandex.practicum.filmorate.model;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import ru.yandex.practicum.filmorate.util.IntSet;
 
 import java.time.LocalDate;
-import java.util.HashSet;
-import java.util.Set;
 
 @Data
 @AllArgsConstructor
@@ -15,7 +14,7 @@ public class Film {
     private final String description;
     private final LocalDate releaseDate;
     private final int duration;
-    private final Set<Integer> likes = new HashSet<>();
+    private final IntSet likes = new IntSet();
 
     public void addLike(int userId) {
         likes.add(userId);
@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * Film with the number of its likes instead of their ids, so its size does not grow with its popularity.
+ */
+@Data
+@AllArgsConstructor
+public class FilmSummary {
+    private final int id;
+    private final String name;
+    private final String description;
+    private final LocalDate releaseDate;
+    private final int duration;
+    private final int likeCount;
+
+    public static FilmSummary of(Film film) {
+        return new FilmSummary(film.getId(), film.getName(), film.getDescription(), film.getReleaseDate(),
+                film.getDuration(), film.getLikes().size());
+    }
+}
@@ -2,10 +2,9 @@ package ru.yandex.practicum.filmorate.model;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import ru.yandex.practicum.filmorate.util.IntSet;
 
 import java.time.LocalDate;
-import java.util.HashSet;
-import java.util.Set;
 
 @Data
 @AllArgsConstructor
@@ -15,7 +14,7 @@ public class User {
     private final String login;
     private String name;
     private final LocalDate birthday;
-    private final Set<Integer> friends = new HashSet<>();
+    private final IntSet friends = new IntSet();
 
     public void addFriend(int friendId) {
         friends.add(friendId);
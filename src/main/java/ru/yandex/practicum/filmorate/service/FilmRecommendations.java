@@ -0,0 +1,108 @@
+package ru.yandex.practicum.filmorate.service;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.util.IntSet;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * User-based collaborative filtering over the like matrix.
+ * <p>
+ * Neighbours of a user are the users with the highest Jaccard similarity of liked films, found through the likers
+ * of the user's films rather than by comparing with every user. Candidate films are the films the neighbours liked
+ * and the user did not, scored by the sum of the similarities of the neighbours who liked them.
+ * <p>
+ * Work per request is bounded: at most {@value #MAX_LIKED_FILMS} liked films of a user and {@value #MAX_LIKERS}
+ * likers of a film are visited, sampled systematically and weighted up by the sampling rate.
+ */
+final class FilmRecommendations {
+    private static final int MAX_LIKED_FILMS = 200;
+    private static final int MAX_LIKERS = 500;
+    private static final int MAX_NEIGHBOURS = 50;
+
+    private final FilmStorage filmStorage;
+    private final UserLikesIndex likesIndex;
+
+    FilmRecommendations(FilmStorage filmStorage, UserLikesIndex likesIndex) {
+        this.filmStorage = filmStorage;
+        this.likesIndex = likesIndex;
+    }
+
+    /**
+     * @return at most limit films the user has not liked, best first
+     */
+    List<Film> recommend(int userId, int limit) {
+        IntSet liked = likesIndex.likedFilms(userId);
+        if (liked.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Integer, Double> similarities = similarUsers(userId, liked);
+        Map<Integer, Double> scores = new HashMap<>();
+        similarities.forEach((neighbourId, similarity) -> {
+            IntSet neighbourFilms = likesIndex.likedFilms(neighbourId);
+            int[] sampled = neighbourFilms.sample(MAX_LIKED_FILMS, neighbourId);
+            double weight = similarity * neighbourFilms.size() / Math.max(sampled.length, 1);
+            for (int filmId : sampled) {
+                if (!liked.contains(filmId)) {
+                    scores.merge(filmId, weight, Double::sum);
+                }
+            }
+        });
+        Set<Integer> filmIds = topByValue(scores, limit).keySet();
+        return filmStorage.getFilms(filmIds).stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return at most {@value #MAX_NEIGHBOURS} users with the highest similarity to the user, best first
+     */
+    private Map<Integer, Double> similarUsers(int userId, IntSet liked) {
+        int[] sampledFilms = liked.sample(MAX_LIKED_FILMS, userId);
+        Set<Integer> filmIds = Arrays.stream(sampledFilms).boxed().collect(Collectors.toCollection(LinkedHashSet::new));
+        double filmWeight = (double) liked.size() / sampledFilms.length;
+        Map<Integer, Double> commonLikes = new HashMap<>();
+        for (Film film : filmStorage.getFilms(filmIds)) {
+            if (film == null) {
+                continue;
+            }
+            int[] likers = film.getLikes().sample(MAX_LIKERS, film.getId());
+            double weight = filmWeight * film.getLikes().size() / Math.max(likers.length, 1);
+            for (int likerId : likers) {
+                if (likerId != userId) {
+                    commonLikes.merge(likerId, weight, Double::sum);
+                }
+            }
+        }
+        Map<Integer, Double> similarities = new HashMap<>();
+        commonLikes.forEach((otherId, common) -> {
+            int otherLikes = likesIndex.likedFilms(otherId).size();
+            double intersection = Math.min(common, Math.min(liked.size(), otherLikes));
+            similarities.put(otherId, intersection / (liked.size() + otherLikes - intersection));
+        });
+        return topByValue(similarities, MAX_NEIGHBOURS);
+    }
+
+    /**
+     * Selects with a bounded heap, so only the selected entries are sorted.
+     * @return at most limit entries ordered by value descending, ties broken by key ascending
+     */
+    static Map<Integer, Double> topByValue(Map<Integer, Double> values, int limit) {
+        Comparator<Map.Entry<Integer, Double>> order = Map.Entry.<Integer, Double>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey());
+        PriorityQueue<Map.Entry<Integer, Double>> top = new PriorityQueue<>(order.reversed());
+        for (Map.Entry<Integer, Double> entry : values.entrySet()) {
+            if (top.size() < limit) {
+                top.add(entry);
+            } else if (order.compare(entry, top.peek()) < 0) {
+                top.poll();
+                top.add(entry);
+            }
+        }
+        return top.stream()
+                .sorted(order)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+    }
+}
@@ -0,0 +1,261 @@
+package ru.yandex.practicum.filmorate.service;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.util.IntSet;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Inverted index of the words of film names and descriptions.
+ * <p>
+ * Words are lower-cased runs of letters and digits. Every word of names and every word of descriptions has a set
+ * of ids of the films containing it, kept in sorted maps, so the last word of a query also matches the words
+ * it is a prefix of, for autocomplete. A film matches when it contains every word of the query. Its relevance
+ * is the sum over the query words of the inverse document frequency of the best matching word, doubled for words
+ * of the name. The most relevant films are ranked by relevance times {@code 1 + 0.1 * ln(1 + likes)}.
+ * <p>
+ * Work per query is bounded: a prefix expands to at most {@value #MAX_EXPANSIONS} words per field, at most
+ * {@value #MAX_CANDIDATES} films containing the rarest query word are scored, sampled systematically,
+ * and at most {@value #MAX_RANKED} of them are read from the storage to be ranked by likes.
+ * <p>
+ * Built from the film storage on first use and kept up to date by {@link #filmCreated} and {@link #filmChanged},
+ * which read the film under a lock striped by film id, so the index sees changes of a film in storage order.
+ * The ids of the indexed films are kept, since a film created before the build may be seen both by the build
+ * and by {@link #filmCreated}.
+ */
+final class FilmSearchIndex {
+    private static final int MAX_EXPANSIONS = 16;
+    private static final int MAX_CANDIDATES = 5_000;
+    private static final int MAX_RANKED = 200;
+    private static final double NAME_WEIGHT = 2;
+    private static final double POPULARITY_WEIGHT = 0.1;
+    private static final int LOCK_STRIPES = 256;
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final FilmStorage filmStorage;
+    private final ConcurrentNavigableMap<String, IntSet> nameIndex = new ConcurrentSkipListMap<>();
+    private final ConcurrentNavigableMap<String, IntSet> descriptionIndex = new ConcurrentSkipListMap<>();
+    private final IntSet indexedIds = new IntSet();
+    private final ReadWriteLock buildLock = new ReentrantReadWriteLock();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private volatile boolean built;
+
+    FilmSearchIndex(FilmStorage filmStorage) {
+        this.filmStorage = filmStorage;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * @return at most limit films matching every word of the query, best first
+     */
+    List<Film> search(String query, int limit) {
+        ensureBuilt();
+        List<String> words = words(query);
+        if (words.isEmpty()) {
+            return new ArrayList<>();
+        }
+        double films = Math.max(indexedIds.size(), 1);
+        List<List<Posting>> terms = new ArrayList<>();
+        for (int i = 0; i < words.size(); i++) {
+            boolean prefix = i == words.size() - 1;
+            List<Posting> postings = new ArrayList<>();
+            addPostings(postings, nameIndex, words.get(i), prefix, NAME_WEIGHT, films);
+            addPostings(postings, descriptionIndex, words.get(i), prefix, 1, films);
+            if (postings.isEmpty()) {
+                return new ArrayList<>();
+            }
+            terms.add(postings);
+        }
+        List<Posting> rarest = terms.stream()
+                .min(Comparator.comparingLong(postings -> postings.stream().mapToLong(posting -> posting.size).sum()))
+                .orElseThrow();
+        Map<Integer, Double> relevance = new HashMap<>();
+        for (Posting posting : rarest) {
+            for (int filmId : posting.filmIds.sample(MAX_CANDIDATES / rarest.size(), 0)) {
+                relevance.computeIfAbsent(filmId, id -> relevance(id, terms));
+            }
+        }
+        relevance.values().removeIf(score -> score == 0);
+        Map<Integer, Double> ranked = FilmRecommendations.topByValue(relevance, Math.max(limit, MAX_RANKED));
+        Map<Integer, Film> candidates = new HashMap<>();
+        Map<Integer, Double> scores = new HashMap<>();
+        for (Film film : filmStorage.getFilms(ranked.keySet())) {
+            if (film != null) {
+                double popularity = 1 + POPULARITY_WEIGHT * Math.log1p(film.getLikes().size());
+                candidates.put(film.getId(), film);
+                scores.put(film.getId(), ranked.get(film.getId()) * popularity);
+            }
+        }
+        return FilmRecommendations.topByValue(scores, limit).keySet().stream()
+                .map(candidates::get)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Indexes a film just created in the storage, unless the build has already indexed it.
+     */
+    void filmCreated(int filmId) {
+        locked(filmId, () -> filmStorage.findFilmById(filmId).ifPresent(film -> {
+            if (indexedIds.add(filmId)) {
+                index(film, true);
+            }
+        }));
+    }
+
+    /**
+     * @return number of films in the index
+     */
+    int size() {
+        ensureBuilt();
+        return indexedIds.size();
+    }
+
+    /**
+     * For a change of the film that may replace its name or description, e.g. an update or a deletion.
+     * The film is read from the storage before and after the change.
+     */
+    void filmChanged(int filmId, Runnable storageChange) {
+        locked(filmId, () -> {
+            Optional<Film> previous = filmStorage.findFilmById(filmId);
+            storageChange.run();
+            Optional<Film> current = filmStorage.findFilmById(filmId);
+            previous.ifPresent(film -> index(film, false));
+            current.ifPresent(film -> index(film, true));
+            if (current.isPresent()) {
+                indexedIds.add(filmId);
+            } else {
+                indexedIds.remove(filmId);
+            }
+        });
+    }
+
+    /**
+     * @return the best weight among the postings of each word containing the film, summed over the words;
+     * 0 if some word is not contained
+     */
+    private static double relevance(int filmId, List<List<Posting>> terms) {
+        double relevance = 0;
+        for (List<Posting> postings : terms) {
+            double best = 0;
+            for (Posting posting : postings) {
+                if (posting.weight > best && posting.filmIds.contains(filmId)) {
+                    best = posting.weight;
+                }
+            }
+            if (best == 0) {
+                return 0;
+            }
+            relevance += best;
+        }
+        return relevance;
+    }
+
+    private static void addPostings(List<Posting> postings, NavigableMap<String, IntSet> index, String word,
+                                    boolean prefix, double fieldWeight, double films) {
+        Collection<IntSet> matches;
+        if (prefix) {
+            matches = index.subMap(word, true, word + Character.MAX_VALUE, false).values().stream()
+                    .filter(filmIds -> !filmIds.isEmpty())
+                    .limit(MAX_EXPANSIONS)
+                    .collect(Collectors.toList());
+        } else {
+            IntSet filmIds = index.get(word);
+            matches = filmIds != null ? List.of(filmIds) : List.of();
+        }
+        for (IntSet filmIds : matches) {
+            int size = filmIds.size();
+            if (size > 0) {
+                postings.add(new Posting(filmIds, size, fieldWeight * Math.log(1 + films / size)));
+            }
+        }
+    }
+
+    /**
+     * Adds the film to, or removes it from, the sets of its words. Sets left empty are kept,
+     * so a concurrent addition never goes to a set that is no longer in the index.
+     */
+    private void index(Film film, boolean add) {
+        index(nameIndex, film.getName(), film.getId(), add);
+        index(descriptionIndex, film.getDescription(), film.getId(), add);
+    }
+
+    private static void index(Map<String, IntSet> index, String text, int filmId, boolean add) {
+        for (String word : words(text)) {
+            if (add) {
+                index.computeIfAbsent(word, w -> new IntSet()).add(filmId);
+            } else {
+                IntSet filmIds = index.get(word);
+                if (filmIds != null) {
+                    filmIds.remove(filmId);
+                }
+            }
+        }
+    }
+
+    private static List<String> words(String text) {
+        if (text == null) {
+            return List.of();
+        }
+        return SEPARATORS.splitAsStream(text.toLowerCase(Locale.ROOT))
+                .filter(word -> !word.isEmpty())
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Builds the index first if needed, so every change is applied to a complete index.
+     */
+    private void locked(int filmId, Runnable change) {
+        ensureBuilt();
+        buildLock.readLock().lock();
+        try {
+            synchronized (locks[Math.floorMod(filmId, LOCK_STRIPES)]) {
+                change.run();
+            }
+        } finally {
+            buildLock.readLock().unlock();
+        }
+    }
+
+    private void ensureBuilt() {
+        if (built) {
+            return;
+        }
+        buildLock.writeLock().lock();
+        try {
+            if (!built) {
+                try (Stream<Film> films = filmStorage.streamAll()) {
+                    films.forEach(film -> {
+                        index(film, true);
+                        indexedIds.add(film.getId());
+                    });
+                }
+                built = true;
+            }
+        } finally {
+            buildLock.writeLock().unlock();
+        }
+    }
+
+    private static final class Posting {
+        private final IntSet filmIds;
+        private final int size;
+        private final double weight;
+
+        private Posting(IntSet filmIds, int size, double weight) {
+            this.filmIds = filmIds;
+            this.size = size;
+            this.weight = weight;
+        }
+    }
+}
@@ -2,56 +2,234 @@ package ru.yandex.practicum.filmorate.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.BadRequestException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 
-import java.util.List;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class FilmService {
     private final FilmStorage filmStorage;
+    private final UserLikesIndex likesIndex;
+    private final LikeIngestionQueue likeQueue;
+    private final FilmRecommendations filmRecommendations;
+    private final FilmSearchIndex searchIndex;
 
-    @Autowired
     public FilmService(FilmStorage filmStorage) {
+        this(filmStorage, new UserLikesIndex(filmStorage), Optional.empty());
+    }
+
+    /**
+     * @param likesIndex every change of likes goes through it, including the ones applied by the like queue
+     * @param likeQueue present when likes are ingested asynchronously, see {@link LikeIngestionQueue}
+     */
+    @Autowired
+    public FilmService(FilmStorage filmStorage, UserLikesIndex likesIndex, Optional<LikeIngestionQueue> likeQueue) {
         this.filmStorage = filmStorage;
+        this.likesIndex = likesIndex;
+        this.likeQueue = likeQueue.orElse(null);
+        this.filmRecommendations = new FilmRecommendations(filmStorage, likesIndex);
+        this.searchIndex = new FilmSearchIndex(filmStorage);
     }
 
     public List<Film> findAllFilms() {
         return filmStorage.findAll();
     }
 
+    public List<Film> findFilmsPage(int afterId, int limit) {
+        return filmStorage.findPage(afterId, limit);
+    }
+
+    /**
+     * Reads the release date index if either date is given and the duration index otherwise,
+     * filtering by the other attribute. A null bound is open.
+     * @return matching films ordered by the indexed attribute and then by id
+     */
+    public List<Film> findFilms(LocalDate releasedFrom, LocalDate releasedTo, Integer minDuration, Integer maxDuration) {
+        int min = minDuration != null ? minDuration : Integer.MIN_VALUE;
+        int max = maxDuration != null ? maxDuration : Integer.MAX_VALUE;
+        if (releasedFrom == null && releasedTo == null) {
+            return filmStorage.findByDuration(min, max);
+        }
+        return filmStorage.findByReleaseDate(releasedFrom != null ? releasedFrom : LocalDate.of(1, 1, 1),
+                        releasedTo != null ? releasedTo : LocalDate.of(9999, 12, 31)).stream()
+                .filter(film -> film.getDuration() >= min && film.getDuration() <= max)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return at most limit films containing every word of the query, the last word possibly as a prefix,
+     * ranked by relevance blended with the number of likes
+     */
+    public List<Film> searchFilms(String query, int limit) {
+        return searchIndex.search(query, limit);
+    }
+
+    public Stream<Film> streamAllFilms() {
+        return filmStorage.streamAll();
+    }
+
     public Film getFilmById(int filmId) {
         return filmStorage.findFilmById(filmId)
                 .orElseThrow(() -> new NotFoundException("Film with id: " + filmId + " is not found"));
     }
 
     public Film createFilm(Film film) {
-        return filmStorage.create(film);
+        Film created = filmStorage.create(film);
+        likesIndex.filmCreated(created.getId());
+        searchIndex.filmCreated(created.getId());
+        return created;
     }
 
     public Film updateFilm(Film film) {
         getFilmById(film.getId()); // ensure that film exists
-        return filmStorage.update(film);
+        likesIndex.filmChanged(film.getId(),
+                () -> searchIndex.filmChanged(film.getId(), () -> filmStorage.update(film)));
+        return film;
     }
 
     public void deleteFilm(Film film) {
-        filmStorage.delete(film);
+        likesIndex.filmChanged(film.getId(),
+                () -> searchIndex.filmChanged(film.getId(), () -> filmStorage.delete(film)));
+    }
+
+    /**
+     * @return ids of at most limit users who liked the film, the smallest ones greater than afterUserId, ascending
+     */
+    public int[] getLikes(int filmId, int afterUserId, int limit) {
+        return getFilmById(filmId).getLikes().page(afterUserId, limit);
     }
 
     public void addLike(int filmId, int userId) {
-        Film filmToLike = getFilmById(filmId);
-        filmToLike.addLike(userId);
-        filmStorage.update(filmToLike);
+        getFilmById(filmId); // ensure that film exists
+        if (likeQueue != null) {
+            likeQueue.addLike(filmId, userId);
+        } else {
+            likesIndex.addLikes(filmId, List.of(userId), () -> filmStorage.addLike(filmId, userId));
+        }
     }
 
     public void deleteLike(int filmId, int userId) {
-        Film film = getFilmById(filmId);
-        film.deleteLike(userId);
-        filmStorage.update(film);
+        getFilmById(filmId); // ensure that film exists
+        if (likeQueue != null) {
+            likeQueue.deleteLike(filmId, userId);
+        } else {
+            likesIndex.deleteLikes(filmId, List.of(userId), () -> filmStorage.deleteLike(filmId, userId));
+        }
+    }
+
+    /**
+     * @return the films with the given ids in the same order, skipping films that do not exist
+     */
+    public List<Film> getFilms(List<Integer> filmIds) {
+        return filmStorage.getFilms(new LinkedHashSet<>(filmIds)).stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return films liked by the user, in ascending id order
+     */
+    public List<Film> getLikedFilms(int userId) {
+        return filmStorage.getFilms(new LinkedHashSet<>(likesIndex.likedFilms(userId))).stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Removes likes of a deleted user from the films the user liked, found through the index instead of a scan.
+     */
+    public void deleteLikesOfUser(int userId) {
+        for (int filmId : likesIndex.likedFilms(userId).toIntArray()) {
+            likesIndex.deleteLikes(filmId, List.of(userId), () -> filmStorage.deleteLike(filmId, userId));
+        }
+    }
+
+    public BatchResult addLikes(List<Like> likes) {
+        return applyLikes(likes, (filmId, userIds) ->
+                likesIndex.addLikes(filmId, userIds, () -> filmStorage.addLikes(filmId, userIds)));
+    }
+
+    public BatchResult deleteLikes(List<Like> likes) {
+        return applyLikes(likes, (filmId, userIds) ->
+                likesIndex.deleteLikes(filmId, userIds, () -> filmStorage.deleteLikes(filmId, userIds)));
+    }
+
+    /**
+     * Validates the whole batch first, then changes each film once with all of its likes.
+     * Invalid items are reported in the result and do not stop the rest of the batch.
+     */
+    private BatchResult applyLikes(List<Like> likes, BiConsumer<Integer, List<Integer>> change) {
+        BatchResult result = new BatchResult();
+        Map<Integer, List<Integer>> indexesByFilm = new LinkedHashMap<>();
+        for (int i = 0; i < likes.size(); i++) {
+            Like like = likes.get(i);
+            if (like == null) {
+                result.addFailure(i, "Like should not be empty");
+            } else if (like.getUserId() < 0) {
+                result.addFailure(i, "User Id: " + like.getUserId() + " should be a positive number");
+            } else {
+                indexesByFilm.computeIfAbsent(like.getFilmId(), id -> new ArrayList<>()).add(i);
+            }
+        }
+        indexesByFilm.forEach((filmId, indexes) -> {
+            if (filmStorage.findFilmById(filmId).isEmpty()) {
+                indexes.forEach(i -> result.addFailure(i, "Film with id: " + filmId + " is not found"));
+                return;
+            }
+            List<Integer> userIds = indexes.stream()
+                    .map(i -> likes.get(i).getUserId())
+                    .collect(Collectors.toList());
+            change.accept(filmId, userIds);
+            result.addApplied(indexes.size());
+        });
+        result.getFailures().sort(Comparator.comparingInt(BatchResult.Failure::getIndex));
+        return result;
+    }
+
+    /**
+     * @return version that changes whenever the film may have changed, for conditional requests
+     */
+    public long getFilmVersion(int filmId) {
+        return likesIndex.filmVersion(filmId);
+    }
+
+    /**
+     * @return version that changes whenever the popular films may have changed
+     */
+    public long getPopularFilmsVersion() {
+        return likesIndex.filmsVersion();
     }
 
     public List<Film> getPopularFilms(int count) {
         return filmStorage.findPopularFilms(count);
     }
+
+    /**
+     * @return films with the most likes gained within the window, e.g. the last 24 hours
+     */
+    public List<Film> getTrendingFilms(Duration window, int count) {
+        if (!likesIndex.trendingWindows().contains(window)) {
+            throw new BadRequestException("window: " + window + " should be one of " + likesIndex.trendingWindows());
+        }
+        return filmStorage.getFilms(new LinkedHashSet<>(likesIndex.trendingFilms(window, count))).stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return films liked by the users whose likes overlap most with the user's, excluding films the user liked
+     */
+    public List<Film> getRecommendedFilms(int userId, int limit) {
+        return filmRecommendations.recommend(userId, limit);
+    }
 }
@@ -0,0 +1,105 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Ranks second-degree connections of a user by the number of mutual friends.
+ * <p>
+ * The traversal is bounded: at most {@value #MAX_FAN_OUT} friends of the user are visited, and a friend with more
+ * friends than that (a supernode) contributes a random sample of them, each weighted up by the sampling rate,
+ * so the counts stay unbiased estimates. Samples are seeded by user id, so repeated requests agree.
+ * Large neighbourhoods are traversed in parallel on the common fork-join pool.
+ * <p>
+ * Rankings are cached per user. A friendship change invalidates only the users whose ranking can depend on it:
+ * both users and their friends.
+ */
+final class FriendRecommendations {
+    static final int MAX_RECOMMENDATIONS = 100;
+    private static final int MAX_FAN_OUT = 1_000;
+    private static final int PARALLEL_THRESHOLD = 64;
+
+    private final UserStorage userStorage;
+    private final Cache<Integer, List<Integer>> rankings = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(Duration.ofMinutes(10))
+            .build();
+
+    FriendRecommendations(UserStorage userStorage) {
+        this.userStorage = userStorage;
+    }
+
+    /**
+     * @return ids of at most {@value #MAX_RECOMMENDATIONS} recommended users, best first
+     */
+    List<Integer> recommend(User user) {
+        return rankings.get(user.getId(), id -> rank(user));
+    }
+
+    void friendshipChanged(int userId, int friendId) {
+        rankings.invalidate(userId);
+        rankings.invalidate(friendId);
+        userStorage.findUserById(userId).ifPresent(user -> rankings.invalidateAll(user.getFriends()));
+        userStorage.findUserById(friendId).ifPresent(friend -> rankings.invalidateAll(friend.getFriends()));
+    }
+
+    /**
+     * For a created, updated or deleted user; call it with both the old and the new state of an updated user.
+     */
+    void userChanged(User user) {
+        rankings.invalidate(user.getId());
+        rankings.invalidateAll(user.getFriends());
+    }
+
+    private List<Integer> rank(User user) {
+        Set<Integer> friendIds = Arrays.stream(sample(user.getFriends().toIntArray(), user.getId()))
+                .boxed()
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        List<User> friends = userStorage.getUsers(friendIds);
+        Stream<User> traversal = friends.size() >= PARALLEL_THRESHOLD ? friends.parallelStream() : friends.stream();
+        Map<Integer, Double> mutualFriends = traversal
+                .filter(Objects::nonNull)
+                .collect(HashMap::new, FriendRecommendations::countFriendsOf,
+                        (counts, other) -> other.forEach((id, count) -> counts.merge(id, count, Double::sum)));
+        return mutualFriends.entrySet().stream()
+                .filter(entry -> entry.getKey() != user.getId() && !user.getFriends().contains(entry.getKey()))
+                .sorted(Map.Entry.<Integer, Double>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(MAX_RECOMMENDATIONS)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    private static void countFriendsOf(Map<Integer, Double> counts, User friend) {
+        int[] candidates = friend.getFriends().toIntArray();
+        int[] sampled = sample(candidates, friend.getId());
+        double weight = (double) candidates.length / sampled.length;
+        for (int candidate : sampled) {
+            counts.merge(candidate, weight, Double::sum);
+        }
+    }
+
+    /**
+     * @return the ids themselves if there are at most {@value #MAX_FAN_OUT} of them, otherwise a sample of that size
+     */
+    private static int[] sample(int[] ids, int seed) {
+        if (ids.length <= MAX_FAN_OUT) {
+            return ids;
+        }
+        int[] sample = ids.clone();
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < MAX_FAN_OUT; i++) {
+            int j = random.nextInt(i, sample.length);
+            int swapped = sample[i];
+            sample[i] = sample[j];
+            sample[j] = swapped;
+        }
+        return Arrays.copyOf(sample, MAX_FAN_OUT);
+    }
+}
@@ -0,0 +1,266 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ServiceUnavailableException;
+import ru.yandex.practicum.filmorate.exception.TooManyRequestsException;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Asynchronous ingestion of likes and unlikes, enabled with {@code filmorate.likes.async.enabled}.
+ * <p>
+ * Request threads only put events into a bounded queue and get a {@link TooManyRequestsException} when it is full.
+ * A single consumer thread collects events for up to {@code flush-interval}, coalesces them per (film, user),
+ * last write wins, and applies each film with one {@link FilmStorage#addLikes}/{@link FilmStorage#deleteLikes} call,
+ * so a burst of likes on one film takes its lock once per batch instead of once per like.
+ * With {@code read-your-writes} the request thread waits until the batch containing its event is applied,
+ * for at most {@code read-your-writes-timeout}, and gets a {@link ServiceUnavailableException} if it is not.
+ * Once the queue is stopped, or its consumer has died, new events are rejected the same way instead of being lost.
+ */
+@Component
+@ConditionalOnProperty("filmorate.likes.async.enabled")
+public class LikeIngestionQueue implements MeterBinder {
+    private static final Logger log = LoggerFactory.getLogger(LikeIngestionQueue.class);
+
+    private final FilmStorage filmStorage;
+    private final UserLikesIndex likesIndex;
+    private final BlockingQueue<LikeEvent> queue;
+    private final long flushIntervalNanos;
+    private final int maxBatchSize;
+    private final boolean readYourWrites;
+    private final long readYourWritesTimeoutNanos;
+    private final Thread consumer = new Thread(this::consume, "like-ingestion");
+    /**
+     * Held for reading while an event is queued and for writing while the queue stops accepting events,
+     * so no event is queued after the consumer has seen the last one.
+     */
+    private final ReadWriteLock acceptLock = new ReentrantReadWriteLock();
+    private volatile boolean running;
+    private volatile boolean stopped;
+    private Counter rejected;
+
+    public LikeIngestionQueue(FilmStorage filmStorage, int queueCapacity, Duration flushInterval, int maxBatchSize,
+                              boolean readYourWrites) {
+        this(filmStorage, new UserLikesIndex(filmStorage), queueCapacity, flushInterval, maxBatchSize, readYourWrites,
+                Duration.ofSeconds(5));
+    }
+
+    @Autowired
+    public LikeIngestionQueue(FilmStorage filmStorage,
+                              UserLikesIndex likesIndex,
+                              @Value("${filmorate.likes.async.queue-capacity:10000}") int queueCapacity,
+                              @Value("${filmorate.likes.async.flush-interval:50ms}") Duration flushInterval,
+                              @Value("${filmorate.likes.async.max-batch-size:5000}") int maxBatchSize,
+                              @Value("${filmorate.likes.async.read-your-writes:false}") boolean readYourWrites,
+                              @Value("${filmorate.likes.async.read-your-writes-timeout:5s}")
+                              Duration readYourWritesTimeout) {
+        this.filmStorage = filmStorage;
+        this.likesIndex = likesIndex;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.readYourWrites = readYourWrites;
+        this.readYourWritesTimeoutNanos = readYourWritesTimeout.toNanos();
+        consumer.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        consumer.start();
+    }
+
+    /**
+     * Stops accepting events and stops the consumer once it has applied everything that is still queued.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        stopAccepting();
+        running = false;
+        consumer.interrupt();
+        consumer.join();
+    }
+
+    public void addLike(int filmId, int userId) {
+        submit(filmId, userId, true);
+    }
+
+    public void deleteLike(int filmId, int userId) {
+        submit(filmId, userId, false);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("filmorate.likes.queue.size", queue, Collection::size)
+                .description("Number of like events waiting to be applied")
+                .register(registry);
+        rejected = Counter.builder("filmorate.likes.queue.rejected")
+                .description("Number of like events rejected because the queue was full")
+                .register(registry);
+    }
+
+    private void submit(int filmId, int userId, boolean like) {
+        LikeEvent event = new LikeEvent(filmId, userId, like, readYourWrites ? new CompletableFuture<>() : null);
+        boolean queued;
+        acceptLock.readLock().lock();
+        try {
+            if (stopped) {
+                throw new ServiceUnavailableException("Likes are not accepted while the service is stopping");
+            }
+            queued = queue.offer(event);
+        } finally {
+            acceptLock.readLock().unlock();
+        }
+        if (!queued) {
+            if (rejected != null) {
+                rejected.increment();
+            }
+            throw new TooManyRequestsException("Too many likes are waiting to be applied, try again later");
+        }
+        if (event.applied != null) {
+            awaitApplied(event.applied);
+        }
+    }
+
+    private void awaitApplied(CompletableFuture<Void> applied) {
+        try {
+            applied.get(readYourWritesTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException
+                    ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new ServiceUnavailableException("The like is queued but was not applied in time, try again later");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Interrupted while waiting for the like to be applied");
+        }
+    }
+
+    /**
+     * If the consumer dies, e.g. of an {@link Error}, the queue stops accepting events and the requests
+     * still waiting for theirs are failed instead of waiting for their timeout.
+     */
+    private void consume() {
+        List<LikeEvent> batch = new ArrayList<>();
+        try {
+            while (running || !queue.isEmpty()) {
+                try {
+                    collect(batch);
+                } catch (InterruptedException e) {
+                    queue.drainTo(batch); // shutting down, apply whatever is left
+                }
+                apply(batch);
+                batch.clear();
+            }
+        } finally {
+            stopAccepting();
+            queue.drainTo(batch);
+            if (!batch.isEmpty()) {
+                log.error("Like ingestion stopped with up to {} events not applied", batch.size());
+                ServiceUnavailableException notApplied = new ServiceUnavailableException(
+                        "Like ingestion stopped before the like was applied");
+                batch.stream()
+                        .filter(event -> event.applied != null)
+                        .forEach(event -> event.applied.completeExceptionally(notApplied));
+            }
+        }
+    }
+
+    private void stopAccepting() {
+        acceptLock.writeLock().lock();
+        try {
+            stopped = true;
+        } finally {
+            acceptLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Waits for the first event, then keeps collecting until the flush interval since it has passed
+     * or the batch is full.
+     */
+    private void collect(List<LikeEvent> batch) throws InterruptedException {
+        batch.add(queue.take());
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        while (batch.size() < maxBatchSize) {
+            queue.drainTo(batch, maxBatchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= maxBatchSize || remaining <= 0) {
+                return;
+            }
+            LikeEvent event = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (event == null) {
+                return;
+            }
+            batch.add(event);
+        }
+    }
+
+    private void apply(List<LikeEvent> batch) {
+        Map<Integer, FilmChanges> changesByFilm = new LinkedHashMap<>();
+        for (LikeEvent event : batch) {
+            FilmChanges changes = changesByFilm.computeIfAbsent(event.filmId, id -> new FilmChanges());
+            changes.likes.put(event.userId, event.like);
+            if (event.applied != null) {
+                changes.waiting.add(event.applied);
+            }
+        }
+        changesByFilm.forEach((filmId, changes) -> {
+            List<Integer> added = new ArrayList<>();
+            List<Integer> deleted = new ArrayList<>();
+            changes.likes.forEach((userId, like) -> (like ? added : deleted).add(userId));
+            try {
+                if (!deleted.isEmpty()) {
+                    likesIndex.deleteLikes(filmId, deleted, () -> filmStorage.deleteLikes(filmId, deleted));
+                }
+                if (!added.isEmpty()) {
+                    likesIndex.addLikes(filmId, added, () -> filmStorage.addLikes(filmId, added));
+                }
+                changes.waiting.forEach(applied -> applied.complete(null));
+            } catch (RuntimeException e) {
+                log.error("Failed to apply likes of film {}", filmId, e);
+                changes.waiting.forEach(applied -> applied.completeExceptionally(e));
+            }
+        });
+    }
+
+    private static final class LikeEvent {
+        private final int filmId;
+        private final int userId;
+        private final boolean like;
+        private final CompletableFuture<Void> applied;
+
+        private LikeEvent(int filmId, int userId, boolean like, CompletableFuture<Void> applied) {
+            this.filmId = filmId;
+            this.userId = userId;
+            this.like = like;
+            this.applied = applied;
+        }
+    }
+
+    private static final class FilmChanges {
+        private final Map<Integer, Boolean> likes = new LinkedHashMap<>();
+        private final List<CompletableFuture<Void>> waiting = new ArrayList<>();
+    }
+}
@@ -0,0 +1,217 @@
+package ru.yandex.practicum.filmorate.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Net number of likes each film got within sliding time windows, e.g. the last 24 hours.
+ * <p>
+ * Time is split into buckets of a fixed size and a window is a whole number of buckets, the current one included.
+ * Every film with recent likes has a ring buffer of per-bucket counts covering the largest window, plus a running
+ * sum per window, so its memory does not depend on the number of likes. Every window keeps its own ranking
+ * of films, updated on each like, and on each bucket rotation only for the films that had likes in the bucket
+ * leaving the window. A top-N query therefore only walks the first N entries of a ranking.
+ * <p>
+ * Likes and queries advance the buckets lazily. Changes of likes run concurrently, each under the monitor
+ * of its film's counter; rotation excludes them with a write lock.
+ */
+final class TrendingFilms {
+    private final Clock clock;
+    private final long bucketMillis;
+    private final List<Duration> windows;
+    private final int[] windowBuckets;
+    private final int ringSize;
+    private final Map<Integer, Counter> counters = new ConcurrentHashMap<>();
+    private final List<Ranking> rankings = new ArrayList<>();
+    private final List<Set<Integer>> touched = new ArrayList<>();
+    private final ReadWriteLock rotationLock = new ReentrantReadWriteLock();
+    private volatile long currentBucket;
+
+    /**
+     * @param windows must be whole multiples of the bucket
+     */
+    TrendingFilms(Clock clock, Duration bucket, Collection<Duration> windows) {
+        this.clock = clock;
+        this.bucketMillis = bucket.toMillis();
+        this.windows = List.copyOf(new TreeSet<>(windows));
+        this.windowBuckets = new int[this.windows.size()];
+        for (int i = 0; i < windowBuckets.length; i++) {
+            Duration window = this.windows.get(i);
+            if (window.toMillis() <= 0 || window.toMillis() % bucketMillis != 0) {
+                throw new IllegalArgumentException("Window " + window + " is not a whole number of " + bucket);
+            }
+            windowBuckets[i] = (int) (window.toMillis() / bucketMillis);
+            rankings.add(new Ranking());
+        }
+        this.ringSize = windowBuckets[windowBuckets.length - 1];
+        for (int i = 0; i < ringSize; i++) {
+            touched.add(ConcurrentHashMap.newKeySet());
+        }
+        this.currentBucket = clock.millis() / bucketMillis;
+    }
+
+    List<Duration> windows() {
+        return windows;
+    }
+
+    /**
+     * @param delta number of likes added to the film, negative for deleted ones
+     */
+    void likesChanged(int filmId, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        advance();
+        rotationLock.readLock().lock();
+        try {
+            int slot = slot(currentBucket);
+            touched.get(slot).add(filmId);
+            Counter counter = counters.computeIfAbsent(filmId, id -> new Counter());
+            synchronized (counter) {
+                counter.buckets[slot] += delta;
+                for (int i = 0; i < windowBuckets.length; i++) {
+                    counter.sums[i] += delta;
+                    rankings.get(i).put(filmId, counter.sums[i]);
+                }
+            }
+        } finally {
+            rotationLock.readLock().unlock();
+        }
+    }
+
+    void filmDeleted(int filmId) {
+        rotationLock.readLock().lock();
+        try {
+            Counter counter = counters.remove(filmId);
+            if (counter != null) {
+                synchronized (counter) {
+                    rankings.forEach(ranking -> ranking.remove(filmId));
+                }
+            }
+        } finally {
+            rotationLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param window one of {@link #windows()}
+     * @return ids of at most count films with the most likes within the window, ties broken by id
+     */
+    List<Integer> top(Duration window, int count) {
+        int index = windows.indexOf(window);
+        if (index < 0) {
+            throw new IllegalArgumentException("Window " + window + " is not one of " + windows);
+        }
+        advance();
+        return rankings.get(index).top(count);
+    }
+
+    private void advance() {
+        long now = clock.millis() / bucketMillis;
+        if (now <= currentBucket) {
+            return;
+        }
+        rotationLock.writeLock().lock();
+        try {
+            if (now - currentBucket >= ringSize) {
+                counters.clear();
+                rankings.forEach(Ranking::clear);
+                touched.forEach(Set::clear);
+                currentBucket = now;
+            }
+            while (currentBucket < now) {
+                rotate(currentBucket + 1);
+            }
+        } finally {
+            rotationLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves the current bucket to next: subtracts the bucket leaving each window from its sums
+     * and clears the slot of the bucket leaving the largest window for reuse.
+     */
+    private void rotate(long next) {
+        for (int i = 0; i < windowBuckets.length; i++) {
+            int leaving = slot(next - windowBuckets[i]);
+            for (int filmId : touched.get(leaving)) {
+                Counter counter = counters.get(filmId);
+                if (counter != null) {
+                    counter.sums[i] -= counter.buckets[leaving];
+                    rankings.get(i).put(filmId, counter.sums[i]);
+                }
+            }
+        }
+        int reused = slot(next);
+        for (int filmId : touched.get(reused)) {
+            Counter counter = counters.get(filmId);
+            if (counter != null) {
+                counter.buckets[reused] = 0;
+                if (counter.isEmpty()) {
+                    counters.remove(filmId);
+                }
+            }
+        }
+        touched.get(reused).clear();
+        currentBucket = next;
+    }
+
+    private int slot(long bucket) {
+        return (int) Math.floorMod(bucket, (long) ringSize);
+    }
+
+    private final class Counter {
+        private final int[] buckets = new int[ringSize];
+        private final int[] sums = new int[windowBuckets.length];
+
+        private boolean isEmpty() {
+            return Arrays.stream(buckets).allMatch(count -> count == 0);
+        }
+    }
+
+    /**
+     * Films with a positive count, ordered by count descending and id ascending.
+     * Both are packed into one long key, so the order is the natural order of the keys.
+     */
+    private static final class Ranking {
+        private final NavigableSet<Long> order = new ConcurrentSkipListSet<>();
+        private final Map<Integer, Long> keys = new ConcurrentHashMap<>();
+
+        void put(int filmId, int count) {
+            Long previous = count > 0 ? keys.put(filmId, key(filmId, count)) : keys.remove(filmId);
+            if (previous != null) {
+                order.remove(previous);
+            }
+            if (count > 0) {
+                order.add(key(filmId, count));
+            }
+        }
+
+        void remove(int filmId) {
+            put(filmId, 0);
+        }
+
+        void clear() {
+            keys.clear();
+            order.clear();
+        }
+
+        List<Integer> top(int count) {
+            List<Integer> result = new ArrayList<>(Math.min(count, keys.size()));
+            Iterator<Long> iterator = order.iterator();
+            while (result.size() < count && iterator.hasNext()) {
+                result.add((int) (long) iterator.next());
+            }
+            return result;
+        }
+
+        private static long key(int filmId, int count) {
+            return ((long) (Integer.MAX_VALUE - count) << 32) | (filmId & 0xFFFFFFFFL);
+        }
+    }
+}
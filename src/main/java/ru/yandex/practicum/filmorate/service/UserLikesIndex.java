@@ -0,0 +1,235 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.util.IntSet;
+import ru.yandex.practicum.filmorate.util.VersionCounters;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Indexes of likes: ids of the films each user liked, and the number of likes each film got recently
+ * (see {@link TrendingFilms}).
+ * <p>
+ * Built from the film storage on first use and kept up to date incrementally afterwards: every change of likes
+ * goes through {@link #addLikes}, {@link #deleteLikes} or {@link #filmChanged}, which apply the storage change
+ * and the index change under one lock striped by film id, so the index sees changes of a film in storage order,
+ * and a film is indexed by {@link #filmCreated} once stored.
+ * The build holds the write lock of the index, so no change can slip between the storage scan and the index.
+ * Since the index knows every like, only likes that really changed something are counted as recent;
+ * recent likes are not restored from the storage, so they start from zero after a restart.
+ * Every change also bumps the version of its film, see {@link #filmVersion}.
+ */
+@Component
+public class UserLikesIndex {
+    private static final int LOCK_STRIPES = 256;
+    private static final int VERSION_COUNTERS = 1 << 16;
+
+    private final FilmStorage filmStorage;
+    private final TrendingFilms trendingFilms;
+    private final Map<Integer, IntSet> filmsByUser = new ConcurrentHashMap<>();
+    private final ReadWriteLock buildLock = new ReentrantReadWriteLock();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final VersionCounters filmVersions = new VersionCounters(VERSION_COUNTERS);
+    private volatile boolean built;
+
+    public UserLikesIndex(FilmStorage filmStorage) {
+        this(filmStorage, Clock.systemUTC(), Duration.ofHours(1), List.of(Duration.ofHours(24)));
+    }
+
+    @Autowired
+    public UserLikesIndex(FilmStorage filmStorage,
+                          @Value("${filmorate.trending.bucket:1h}") Duration trendingBucket,
+                          @Value("${filmorate.trending.windows:24h}") List<Duration> trendingWindows) {
+        this(filmStorage, Clock.systemUTC(), trendingBucket, trendingWindows);
+    }
+
+    /**
+     * @param trendingWindows windows of recent likes, each a whole number of trendingBucket
+     */
+    public UserLikesIndex(FilmStorage filmStorage, Clock clock, Duration trendingBucket,
+                          List<Duration> trendingWindows) {
+        this.filmStorage = filmStorage;
+        this.trendingFilms = new TrendingFilms(clock, trendingBucket, trendingWindows);
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * @return live set of ids of the films liked by the user; must not be modified
+     */
+    public IntSet likedFilms(int userId) {
+        ensureBuilt();
+        IntSet films = filmsByUser.get(userId);
+        return films != null ? films : new IntSet();
+    }
+
+    /**
+     * @return windows accepted by {@link #trendingFilms}, shortest first
+     */
+    public List<Duration> trendingWindows() {
+        return trendingFilms.windows();
+    }
+
+    /**
+     * @param window one of {@link #trendingWindows()}
+     * @return ids of at most count films with the most likes gained within the window, best first
+     */
+    public List<Integer> trendingFilms(Duration window, int count) {
+        return trendingFilms.top(window, count);
+    }
+
+    /**
+     * @return version that changes whenever the film, its likes included, may have changed
+     */
+    public long filmVersion(int filmId) {
+        return filmVersions.version(filmId);
+    }
+
+    /**
+     * @return version that changes whenever any film may have changed, e.g. for lists ranked by likes
+     */
+    public long filmsVersion() {
+        return filmVersions.totalVersion();
+    }
+
+    public void addLikes(int filmId, Collection<Integer> userIds, Runnable storageChange) {
+        locked(filmId, () -> {
+            storageChange.run();
+            int added = 0;
+            for (int userId : userIds) {
+                added += add(userId, filmId) ? 1 : 0;
+            }
+            trendingFilms.likesChanged(filmId, added);
+        });
+    }
+
+    /**
+     * Indexes the likes a film was created with for finding the films of their users. They are not counted
+     * as recent likes, since they were not given now.
+     */
+    public void filmCreated(int filmId) {
+        locked(filmId, () -> {
+            for (int userId : likesOf(filmId).toIntArray()) {
+                add(userId, filmId);
+            }
+        });
+    }
+
+    public void deleteLikes(int filmId, Collection<Integer> userIds, Runnable storageChange) {
+        locked(filmId, () -> {
+            storageChange.run();
+            int deleted = 0;
+            for (int userId : userIds) {
+                deleted += remove(userId, filmId) ? 1 : 0;
+            }
+            trendingFilms.likesChanged(filmId, -deleted);
+        });
+    }
+
+    /**
+     * For a change of the film that may replace its likes, e.g. an update or a deletion.
+     * The likes are read from the storage before and after the change.
+     */
+    public void filmChanged(int filmId, Runnable storageChange) {
+        locked(filmId, () -> {
+            int[] previous = likesOf(filmId).toIntArray();
+            storageChange.run();
+            Optional<Film> film = filmStorage.findFilmById(filmId);
+            IntSet current = film.map(Film::getLikes).orElseGet(IntSet::new);
+            int changed = 0;
+            for (int userId : previous) {
+                if (!current.contains(userId)) {
+                    changed -= remove(userId, filmId) ? 1 : 0;
+                }
+            }
+            for (int userId : current.toIntArray()) {
+                changed += add(userId, filmId) ? 1 : 0;
+            }
+            if (film.isPresent()) {
+                trendingFilms.likesChanged(filmId, changed);
+            } else {
+                trendingFilms.filmDeleted(filmId);
+            }
+        });
+    }
+
+    /**
+     * Builds the index first if needed, so every change is applied to a complete index.
+     */
+    private void locked(int filmId, Runnable change) {
+        ensureBuilt();
+        buildLock.readLock().lock();
+        try {
+            synchronized (locks[Math.floorMod(filmId, LOCK_STRIPES)]) {
+                change.run();
+                filmVersions.changed(filmId);
+            }
+        } finally {
+            buildLock.readLock().unlock();
+        }
+    }
+
+    private void ensureBuilt() {
+        if (built) {
+            return;
+        }
+        buildLock.writeLock().lock();
+        try {
+            if (!built) {
+                try (Stream<Film> films = filmStorage.streamAll()) {
+                    films.forEach(film -> {
+                        for (int userId : film.getLikes().toIntArray()) {
+                            add(userId, film.getId());
+                        }
+                    });
+                }
+                built = true;
+            }
+        } finally {
+            buildLock.writeLock().unlock();
+        }
+    }
+
+    private IntSet likesOf(int filmId) {
+        return filmStorage.findFilmById(filmId).map(Film::getLikes).orElseGet(IntSet::new);
+    }
+
+    /**
+     * @return whether the like was not indexed yet
+     */
+    private boolean add(int userId, int filmId) {
+        boolean[] added = new boolean[1];
+        filmsByUser.compute(userId, (id, films) -> {
+            IntSet result = films != null ? films : new IntSet();
+            added[0] = result.add(filmId);
+            return result;
+        });
+        return added[0];
+    }
+
+    /**
+     * @return whether the like was indexed
+     */
+    private boolean remove(int userId, int filmId) {
+        boolean[] removed = new boolean[1];
+        filmsByUser.computeIfPresent(userId, (id, films) -> {
+            removed[0] = films.remove(filmId);
+            return films.isEmpty() ? null : films;
+        });
+        return removed[0];
+    }
+}
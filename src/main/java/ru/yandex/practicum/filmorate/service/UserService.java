@@ -1,65 +1,209 @@
 package ru.yandex.practicum.filmorate.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.BadRequestException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.IntSet;
+import ru.yandex.practicum.filmorate.util.VersionCounters;
 
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 @Service
 public class UserService {
+    private static final int VERSION_COUNTERS = 1 << 16;
     private final UserStorage userStorage;
+    private final FriendRecommendations friendRecommendations;
+    private final FilmService filmService;
+    private final VersionCounters userVersions = new VersionCounters(VERSION_COUNTERS);
 
-    @Autowired
     public UserService(UserStorage userStorage) {
+        this(userStorage, Optional.empty());
+    }
+
+    /**
+     * @param filmService present when likes of deleted users should be removed from films
+     */
+    @Autowired
+    public UserService(UserStorage userStorage, Optional<FilmService> filmService) {
         this.userStorage = userStorage;
+        this.friendRecommendations = new FriendRecommendations(userStorage);
+        this.filmService = filmService.orElse(null);
     }
 
     public List<User> findAllUsers() {
         return userStorage.findAll();
     }
 
+    public List<User> findUsersPage(int afterId, int limit) {
+        return userStorage.findPage(afterId, limit);
+    }
+
+    public Optional<User> findUserByEmail(String email) {
+        return userStorage.findByEmail(email);
+    }
+
+    public List<User> findUsersByLogin(String login) {
+        return userStorage.findByLogin(login);
+    }
+
+    public Stream<User> streamAllUsers() {
+        return userStorage.streamAll();
+    }
+
     public User getUserById(Integer id) {
         return userStorage.findUserById(id)
                 .orElseThrow(() -> new NotFoundException("Film with id: " + id + " is not found"));
     }
 
     public User createUser(User user) {
-        return userStorage.create(user);
+        User created;
+        try {
+            created = userStorage.create(user);
+        } catch (DuplicateKeyException e) {
+            throw emailUsed(user);
+        }
+        userVersions.changed(created.getId());
+        return created;
     }
 
     public User updateUser(User user) {
-        getUserById(user.getId()); // ensure that user exists
-        return userStorage.update(user);
+        User previous = getUserById(user.getId()); // ensure that user exists
+        User updated;
+        try {
+            updated = userStorage.update(user);
+        } catch (DuplicateKeyException e) {
+            throw emailUsed(user);
+        }
+        userVersions.changed(user.getId());
+        friendRecommendations.userChanged(previous);
+        friendRecommendations.userChanged(updated);
+        return updated;
     }
 
     public void deleteUser(User user) {
+        // the friends are read first, since the storage deletes the friendships along with the user
+        int[] friendIds = userStorage.findUserById(user.getId())
+                .map(stored -> stored.getFriends().toIntArray())
+                .orElseGet(() -> user.getFriends().toIntArray());
         userStorage.delete(user);
+        userVersions.changed(user.getId());
+        friendRecommendations.userChanged(user);
+        for (int friendId : friendIds) {
+            friendshipChanged(user.getId(), friendId);
+        }
+        if (filmService != null) {
+            filmService.deleteLikesOfUser(user.getId());
+        }
     }
 
     public void addNewFriend(int userId, int friendId) {
-        User user = getUserById(userId);
-        User friend = getUserById(friendId);
-        user.addFriend(friendId);
-        friend.addFriend(userId);
+        getUserById(userId); // ensure that both users exist
+        getUserById(friendId);
+        userStorage.addFriend(userId, friendId);
+        friendshipChanged(userId, friendId);
     }
 
     public void deleteFriend(int userId, int friendId) {
-        User user = getUserById(userId);
-        User friend = getUserById(friendId);
-        user.deleteFriend(friendId);
-        friend.deleteFriend(userId);
+        getUserById(userId); // ensure that both users exist
+        getUserById(friendId);
+        userStorage.deleteFriend(userId, friendId);
+        friendshipChanged(userId, friendId);
+    }
+
+    /**
+     * Validates the whole batch first, checking every distinct user once, then adds the friendships
+     * grouped by user. Invalid items are reported in the result and do not stop the rest of the batch.
+     */
+    public BatchResult addFriends(List<Friendship> friendships) {
+        BatchResult result = new BatchResult();
+        Map<Integer, Boolean> userExists = new HashMap<>();
+        Map<Integer, List<Integer>> indexesByUser = new LinkedHashMap<>();
+        for (int i = 0; i < friendships.size(); i++) {
+            Friendship friendship = friendships.get(i);
+            if (friendship == null) {
+                result.addFailure(i, "Friendship should not be empty");
+                continue;
+            }
+            String error = null;
+            for (int id : new int[]{friendship.getUserId(), friendship.getFriendId()}) {
+                if (error == null && id < 0) {
+                    error = "User Id: " + id + " should be a positive number";
+                } else if (error == null && !userExists.computeIfAbsent(id, this::userExists)) {
+                    error = "User with id: " + id + " is not found";
+                }
+            }
+            if (error != null) {
+                result.addFailure(i, error);
+            } else {
+                indexesByUser.computeIfAbsent(friendship.getUserId(), id -> new ArrayList<>()).add(i);
+            }
+        }
+        indexesByUser.forEach((userId, indexes) -> {
+            List<Integer> friendIds = indexes.stream()
+                    .map(i -> friendships.get(i).getFriendId())
+                    .collect(Collectors.toList());
+            userStorage.addFriends(userId, friendIds);
+            friendIds.forEach(friendId -> friendshipChanged(userId, friendId));
+            result.addApplied(indexes.size());
+        });
+        return result;
+    }
+
+    private void friendshipChanged(int userId, int friendId) {
+        userVersions.changed(userId);
+        userVersions.changed(friendId);
+        friendRecommendations.friendshipChanged(userId, friendId);
+    }
+
+    /**
+     * For a violation of the storage's uniqueness of emails, which the controller checks only as a fast path.
+     */
+    private static BadRequestException emailUsed(User user) {
+        return new BadRequestException("email: " + user.getEmail() + " is already used");
+    }
+
+    private boolean userExists(int userId) {
+        return userStorage.findUserById(userId).isPresent();
     }
 
     public List<User> getCommonFriendsList(int userId, int friendId) {
-        User user = getUserById(userId);
-        User friend = getUserById(friendId);
-        Set<Integer> commonFriends = new HashSet<>(user.getFriends());
-        commonFriends.retainAll(friend.getFriends());
-        return userStorage.getUsers(commonFriends);
+        return getCommonFriendsList(userId, List.of(friendId));
+    }
+
+    public List<User> getCommonFriendsList(int userId, List<Integer> otherIds) {
+        IntSet[] friendSets = new IntSet[otherIds.size() + 1];
+        friendSets[0] = getUserById(userId).getFriends();
+        for (int i = 0; i < otherIds.size(); i++) {
+            friendSets[i + 1] = getUserById(otherIds.get(i)).getFriends();
+        }
+        return userStorage.getUsers(IntSet.intersection(friendSets));
+    }
+
+    /**
+     * @return users who are not friends yet, ranked by the number of mutual friends
+     */
+    public List<User> getRecommendations(int userId, int limit) {
+        List<Integer> recommended = friendRecommendations.recommend(getUserById(userId));
+        return userStorage.getUsers(new LinkedHashSet<>(recommended.subList(0, Math.min(limit, recommended.size()))));
+    }
+
+    /**
+     * @return version that changes whenever the friends of the user or any of them may have changed,
+     * for conditional requests
+     */
+    public long getUserFriendsVersion(int userId) {
+        long version = userVersions.version(userId);
+        for (int friendId : getUserById(userId).getFriends().toIntArray()) {
+            version = version * 31 + userVersions.version(friendId);
+        }
+        return version;
     }
 
     public List<User> getUserFriendsList(int userId) {
@@ -0,0 +1,234 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Write-behind buffer for a two-column relation table such as likes or friendships.
+ * <p>
+ * Additions and removals are coalesced per (owner, target) pair, last write wins, and sent to the database
+ * as JDBC batches once {@code batchSize} pairs are pending or {@link #flush()} is called.
+ * Reads go through {@link #read}, which applies the pending writes of the owner on top of what was loaded,
+ * so callers always see their own writes even before they reach the database.
+ * <p>
+ * A flush applies all pending writes in one transaction. If it fails, e.g. because an entity was deleted
+ * after a write to it was buffered, the writes are applied one by one and those that still fail are dropped,
+ * so one bad row never blocks the others or keeps the buffer growing.
+ */
+public class BufferedRelationWriter {
+    private static final Logger log = LoggerFactory.getLogger(BufferedRelationWriter.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final String insertSql;
+    private final String deleteSql;
+    private final int batchSize;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Map<Integer, Boolean>> pending = new HashMap<>();
+    private int pendingCount;
+
+    /**
+     * @param insertSql idempotent insert taking (owner, target) parameters; should skip pairs whose entities
+     *                  no longer exist instead of failing
+     * @param deleteSql delete taking (owner, target) parameters
+     */
+    public BufferedRelationWriter(JdbcTemplate jdbcTemplate, String insertSql, String deleteSql, int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(
+                new DataSourceTransactionManager(Objects.requireNonNull(jdbcTemplate.getDataSource())));
+        this.insertSql = insertSql;
+        this.deleteSql = deleteSql;
+        this.batchSize = batchSize;
+    }
+
+    public void add(int ownerId, int targetId) {
+        write(ownerId, targetId, true);
+    }
+
+    public void remove(int ownerId, int targetId) {
+        write(ownerId, targetId, false);
+    }
+
+    /**
+     * Adds the pair in both directions as one change, so no reader or flush sees only one of them.
+     */
+    public void addBoth(int firstId, int secondId) {
+        writeBoth(firstId, secondId, true);
+    }
+
+    /**
+     * Removes the pair in both directions as one change, see {@link #addBoth}.
+     */
+    public void removeBoth(int firstId, int secondId) {
+        writeBoth(firstId, secondId, false);
+    }
+
+    /**
+     * Drops pending writes owned by the id, e.g. after the owner was deleted together with its rows.
+     */
+    public void discardOwner(int ownerId) {
+        lock.writeLock().lock();
+        try {
+            Map<Integer, Boolean> owned = pending.remove(ownerId);
+            if (owned != null) {
+                pendingCount -= owned.size();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops pending writes in which the id is either the owner or the target,
+     * for relations whose owners and targets are the same kind of entity, e.g. friendships of a deleted user.
+     */
+    public void discard(int id) {
+        lock.writeLock().lock();
+        try {
+            Map<Integer, Boolean> owned = pending.remove(id);
+            if (owned != null) {
+                pendingCount -= owned.size();
+            }
+            for (Map<Integer, Boolean> targets : pending.values()) {
+                if (targets.remove(id) != null) {
+                    pendingCount--;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Loads data while no flush is in progress and lets the caller apply pending writes
+     * with {@link #applyPending} to what it has loaded.
+     */
+    public <T> T read(Supplier<T> loader) {
+        lock.readLock().lock();
+        try {
+            return loader.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Must be called from inside {@link #read}.
+     */
+    public void applyPending(int ownerId, Set<Integer> targets) {
+        Map<Integer, Boolean> owned = pending.get(ownerId);
+        if (owned == null) {
+            return;
+        }
+        owned.forEach((targetId, present) -> {
+            if (present) {
+                targets.add(targetId);
+            } else {
+                targets.remove(targetId);
+            }
+        });
+    }
+
+    /**
+     * Must be called from inside {@link #read}.
+     * @return ids of the owners that have pending writes
+     */
+    public Set<Integer> pendingOwners() {
+        return new HashSet<>(pending.keySet());
+    }
+
+    public void flush() {
+        lock.writeLock().lock();
+        try {
+            flushLocked();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void write(int ownerId, int targetId, boolean present) {
+        lock.writeLock().lock();
+        try {
+            put(ownerId, targetId, present);
+            flushIfFull();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void writeBoth(int firstId, int secondId, boolean present) {
+        lock.writeLock().lock();
+        try {
+            put(firstId, secondId, present);
+            put(secondId, firstId, present);
+            flushIfFull();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void put(int ownerId, int targetId, boolean present) {
+        if (pending.computeIfAbsent(ownerId, id -> new HashMap<>()).put(targetId, present) == null) {
+            pendingCount++;
+        }
+    }
+
+    private void flushIfFull() {
+        if (pendingCount >= batchSize) {
+            flushLocked();
+        }
+    }
+
+    private void flushLocked() {
+        if (pendingCount == 0) {
+            return;
+        }
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        pending.forEach((ownerId, targets) -> targets.forEach((targetId, present) ->
+                (present ? inserts : deletes).add(new Object[]{ownerId, targetId})));
+        pending.clear();
+        pendingCount = 0;
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!deletes.isEmpty()) {
+                    jdbcTemplate.batchUpdate(deleteSql, deletes);
+                }
+                if (!inserts.isEmpty()) {
+                    jdbcTemplate.batchUpdate(insertSql, inserts);
+                }
+            });
+        } catch (DataAccessException e) {
+            log.warn("Batch of {} writes failed, applying them one by one", deletes.size() + inserts.size(), e);
+            int dropped = applyEach(deleteSql, deletes) + applyEach(insertSql, inserts);
+            if (dropped > 0) {
+                log.error("Dropped {} writes that failed on their own", dropped);
+            }
+        }
+    }
+
+    /**
+     * @return number of rows that failed and were dropped
+     */
+    private int applyEach(String sql, List<Object[]> rows) {
+        int dropped = 0;
+        for (Object[] row : rows) {
+            try {
+                jdbcTemplate.update(sql, row);
+            } catch (DataAccessException e) {
+                log.warn("Dropped write ({}, {}): {}", row[0], row[1], e.getMessage());
+                dropped++;
+            }
+        }
+        return dropped;
+    }
+}
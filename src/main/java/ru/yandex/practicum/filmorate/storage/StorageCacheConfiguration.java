@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.CachingUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.Duration;
+
+/**
+ * Wraps whichever film and user storages are active into read-through caches
+ * when {@code filmorate.cache.enabled} is set. Hits, misses and evictions are published
+ * as {@code cache.*} metrics with the {@code films} and {@code users} cache names.
+ */
+@Configuration
+@ConditionalOnProperty(value = "filmorate.cache.enabled", havingValue = "true")
+public class StorageCacheConfiguration {
+    private final Cache<Integer, Film> filmCache;
+    private final Cache<Integer, User> userCache;
+
+    public StorageCacheConfiguration(@Value("${filmorate.cache.maximum-size:10000}") long maximumSize,
+                                     @Value("${filmorate.cache.time-to-live:10m}") Duration timeToLive) {
+        this.filmCache = newCache(maximumSize, timeToLive);
+        this.userCache = newCache(maximumSize, timeToLive);
+    }
+
+    @Bean
+    @Primary
+    public FilmStorage cachingFilmStorage(FilmStorage filmStorage) {
+        return new CachingFilmStorage(filmStorage, filmCache);
+    }
+
+    @Bean
+    @Primary
+    public UserStorage cachingUserStorage(UserStorage userStorage) {
+        return new CachingUserStorage(userStorage, userCache);
+    }
+
+    @Bean
+    public MeterBinder storageCacheMetrics() {
+        return registry -> {
+            CaffeineCacheMetrics.monitor(registry, filmCache, "films");
+            CaffeineCacheMetrics.monitor(registry, userCache, "users");
+        };
+    }
+
+    private static <V> Cache<Integer, V> newCache(long maximumSize, Duration timeToLive) {
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build();
+    }
+}
@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Read-through cache for {@link #findFilmById} in front of any other film storage.
+ * Entries are invalidated on every change of the film, including likes.
+ */
+public class CachingFilmStorage implements FilmStorage {
+    private final FilmStorage delegate;
+    private final Cache<Integer, Film> cache;
+
+    public CachingFilmStorage(FilmStorage delegate, Cache<Integer, Film> cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public Optional<Film> findFilmById(int id) {
+        return Optional.ofNullable(cache.get(id, filmId -> delegate.findFilmById(filmId).orElse(null)));
+    }
+
+    @Override
+    public List<Film> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<Film> findPage(int afterId, int limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public Stream<Film> streamAll() {
+        return delegate.streamAll();
+    }
+
+    @Override
+    public List<Film> findPopularFilms(int count) {
+        return delegate.findPopularFilms(count);
+    }
+
+    @Override
+    public List<Film> getFilms(Set<Integer> ids) {
+        return delegate.getFilms(ids);
+    }
+
+    @Override
+    public List<Film> findByReleaseDate(LocalDate from, LocalDate to) {
+        return delegate.findByReleaseDate(from, to);
+    }
+
+    @Override
+    public List<Film> findByDuration(int minDuration, int maxDuration) {
+        return delegate.findByDuration(minDuration, maxDuration);
+    }
+
+    @Override
+    public Film create(Film film) {
+        return delegate.create(film);
+    }
+
+    @Override
+    public void delete(Film film) {
+        delegate.delete(film);
+        cache.invalidate(film.getId());
+    }
+
+    @Override
+    public Film update(Film film) {
+        Film updated = delegate.update(film);
+        cache.invalidate(film.getId());
+        return updated;
+    }
+
+    @Override
+    public void addLike(int filmId, int userId) {
+        delegate.addLike(filmId, userId);
+        cache.invalidate(filmId);
+    }
+
+    @Override
+    public void deleteLike(int filmId, int userId) {
+        delegate.deleteLike(filmId, userId);
+        cache.invalidate(filmId);
+    }
+
+    @Override
+    public void addLikes(int filmId, Collection<Integer> userIds) {
+        delegate.addLikes(filmId, userIds);
+        cache.invalidate(filmId);
+    }
+
+    @Override
+    public void deleteLikes(int filmId, Collection<Integer> userIds) {
+        delegate.deleteLikes(filmId, userIds);
+        cache.invalidate(filmId);
+    }
+}
@@ -0,0 +1,217 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.BufferedRelationWriter;
+
+import javax.annotation.PreDestroy;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Film storage on top of the relational schema from schema.sql.
+ * Likes are written through a {@link BufferedRelationWriter}, so they reach the database in JDBC batches.
+ */
+@Component
+@Profile("db")
+public class FilmDbStorage implements FilmStorage {
+    private static final int STREAM_PAGE_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final SimpleJdbcInsert filmInsert;
+    private final BufferedRelationWriter likeWriter;
+
+    public FilmDbStorage(JdbcTemplate jdbcTemplate, @Value("${filmorate.db.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.filmInsert = new SimpleJdbcInsert(jdbcTemplate)
+                .withTableName("films")
+                .usingColumns("name", "description", "release_date", "duration")
+                .usingGeneratedKeyColumns("id");
+        this.likeWriter = new BufferedRelationWriter(jdbcTemplate,
+                "MERGE INTO likes (film_id, user_id) KEY (film_id, user_id) " +
+                        "SELECT v.film_id, v.user_id FROM (VALUES (CAST(? AS INT), CAST(? AS INT))) " +
+                        "AS v (film_id, user_id) " +
+                        "WHERE EXISTS (SELECT 1 FROM films WHERE id = v.film_id)",
+                "DELETE FROM likes WHERE film_id = ? AND user_id = ?",
+                batchSize);
+    }
+
+    @Override
+    public List<Film> findAll() {
+        return likeWriter.read(() -> withLikes(jdbcTemplate.query("SELECT * FROM films ORDER BY id", this::mapFilm)));
+    }
+
+    @Override
+    public List<Film> findPage(int afterId, int limit) {
+        return likeWriter.read(() -> withLikes(jdbcTemplate.query(
+                "SELECT * FROM films WHERE id > ? ORDER BY id LIMIT ?", this::mapFilm, afterId, limit)));
+    }
+
+    @Override
+    public Stream<Film> streamAll() {
+        return Stream.iterate(findPage(0, STREAM_PAGE_SIZE),
+                        page -> !page.isEmpty(),
+                        page -> findPage(page.get(page.size() - 1).getId(), STREAM_PAGE_SIZE))
+                .flatMap(List::stream);
+    }
+
+    /**
+     * The database ranks films by the flushed likes, without waiting for a flush. Films with pending likes may move
+     * either way once those are applied, so the database ranks one more film per such film, those films are loaded
+     * as well, and all of them are ranked again with every like.
+     */
+    @Override
+    public List<Film> findPopularFilms(int count) {
+        return likeWriter.read(() -> {
+            Set<Integer> pendingIds = likeWriter.pendingOwners();
+            List<Film> candidates = jdbcTemplate.query(
+                    "SELECT f.* FROM films AS f " +
+                            "LEFT JOIN (SELECT film_id, COUNT(*) AS like_count FROM likes GROUP BY film_id) AS l " +
+                            "ON l.film_id = f.id " +
+                            "ORDER BY COALESCE(l.like_count, 0) DESC, f.id " +
+                            "LIMIT ?",
+                    this::mapFilm, count + pendingIds.size());
+            candidates.forEach(film -> pendingIds.remove(film.getId()));
+            if (!pendingIds.isEmpty()) {
+                candidates.addAll(namedJdbcTemplate.query("SELECT * FROM films WHERE id IN (:ids)",
+                        new MapSqlParameterSource("ids", pendingIds), this::mapFilm));
+            }
+            return withLikes(candidates).stream()
+                    .sorted(Comparator.comparingInt((Film film) -> film.getLikes().size()).reversed()
+                            .thenComparingInt(Film::getId))
+                    .limit(count)
+                    .collect(Collectors.toList());
+        });
+    }
+
+    @Override
+    public Optional<Film> findFilmById(int id) {
+        return likeWriter.read(() -> withLikes(jdbcTemplate.query(
+                "SELECT * FROM films WHERE id = ?", this::mapFilm, id))).stream().findFirst();
+    }
+
+    @Override
+    public List<Film> getFilms(Set<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Integer, Film> filmsById = likeWriter.read(() -> withLikes(namedJdbcTemplate.query(
+                "SELECT * FROM films WHERE id IN (:ids)", new MapSqlParameterSource("ids", ids), this::mapFilm)))
+                .stream()
+                .collect(Collectors.toMap(Film::getId, Function.identity()));
+        return ids.stream()
+                .map(filmsById::get)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Film> findByReleaseDate(LocalDate from, LocalDate to) {
+        return likeWriter.read(() -> withLikes(jdbcTemplate.query(
+                "SELECT * FROM films WHERE release_date BETWEEN ? AND ? ORDER BY release_date, id",
+                this::mapFilm, Date.valueOf(from), Date.valueOf(to))));
+    }
+
+    @Override
+    public List<Film> findByDuration(int minDuration, int maxDuration) {
+        return likeWriter.read(() -> withLikes(jdbcTemplate.query(
+                "SELECT * FROM films WHERE duration BETWEEN ? AND ? ORDER BY duration, id",
+                this::mapFilm, minDuration, maxDuration)));
+    }
+
+    @Override
+    public Film create(Film film) {
+        Number id = filmInsert.executeAndReturnKey(new MapSqlParameterSource()
+                .addValue("name", film.getName())
+                .addValue("description", film.getDescription())
+                .addValue("release_date", Date.valueOf(film.getReleaseDate()))
+                .addValue("duration", film.getDuration()));
+        film.setId(id.intValue());
+        for (int userId : film.getLikes().toIntArray()) {
+            likeWriter.add(film.getId(), userId);
+        }
+        return film;
+    }
+
+    @Override
+    public void delete(Film film) {
+        jdbcTemplate.update("DELETE FROM films WHERE id = ?", film.getId());
+        likeWriter.discardOwner(film.getId());
+    }
+
+    @Override
+    public Film update(Film film) {
+        jdbcTemplate.update("UPDATE films SET name = ?, description = ?, release_date = ?, duration = ? WHERE id = ?",
+                film.getName(), film.getDescription(), Date.valueOf(film.getReleaseDate()), film.getDuration(),
+                film.getId());
+        return film;
+    }
+
+    @Override
+    public void addLike(int filmId, int userId) {
+        likeWriter.add(filmId, userId);
+    }
+
+    @Override
+    public void deleteLike(int filmId, int userId) {
+        likeWriter.remove(filmId, userId);
+    }
+
+    @Override
+    public void addLikes(int filmId, Collection<Integer> userIds) {
+        userIds.forEach(userId -> likeWriter.add(filmId, userId));
+    }
+
+    @Override
+    public void deleteLikes(int filmId, Collection<Integer> userIds) {
+        userIds.forEach(userId -> likeWriter.remove(filmId, userId));
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.db.flush-interval-ms:1000}")
+    @PreDestroy
+    public void flush() {
+        likeWriter.flush();
+    }
+
+    /**
+     * Loads likes of all given films with one query and applies likes that are not flushed yet.
+     * Must be called from inside {@link BufferedRelationWriter#read}.
+     */
+    private List<Film> withLikes(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        Map<Integer, Film> filmsById = films.stream().collect(Collectors.toMap(Film::getId, Function.identity()));
+        namedJdbcTemplate.query("SELECT film_id, user_id FROM likes WHERE film_id IN (:ids)",
+                new MapSqlParameterSource("ids", filmsById.keySet()),
+                rs -> {
+                    filmsById.get(rs.getInt("film_id")).addLike(rs.getInt("user_id"));
+                });
+        for (Film film : films) {
+            likeWriter.applyPending(film.getId(), film.getLikes());
+        }
+        return films;
+    }
+
+    private Film mapFilm(ResultSet rs, int rowNum) throws SQLException {
+        return new Film(rs.getInt("id"),
+                rs.getString("name"),
+                rs.getString("description"),
+                rs.getDate("release_date").toLocalDate(),
+                rs.getInt("duration"));
+    }
+}
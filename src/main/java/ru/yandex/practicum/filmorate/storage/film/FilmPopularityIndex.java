@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Exact ranking: films ordered by number of likes (descending), ties broken by id (ascending).
+ * Kept up to date on every create, update, like and delete, so that a top-N query
+ * only walks the first N entries instead of sorting the whole catalogue.
+ * <p>
+ * Reads are lock-free. Callers must hold the film's monitor while calling {@link #put} or {@link #remove},
+ * so that re-ranking of one film is never interleaved with another change to the same film.
+ */
+public class FilmPopularityIndex implements FilmRanking {
+    private static final Comparator<Entry> ORDER = Comparator
+            .comparingInt((Entry entry) -> entry.likes).reversed()
+            .thenComparingInt(entry -> entry.filmId);
+
+    private final NavigableSet<Entry> ranking = new ConcurrentSkipListSet<>(ORDER);
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+
+    @Override
+    public void put(Film film, int likesDelta) {
+        Entry entry = new Entry(film);
+        Entry previous = entries.put(film.getId(), entry);
+        if (previous != null) {
+            ranking.remove(previous);
+        }
+        ranking.add(entry);
+    }
+
+    @Override
+    public void remove(Film film) {
+        Entry previous = entries.remove(film.getId());
+        if (previous != null) {
+            ranking.remove(previous);
+        }
+    }
+
+    @Override
+    public List<Film> top(int count) {
+        List<Film> result = new ArrayList<>(Math.min(count, entries.size()));
+        Iterator<Entry> iterator = ranking.iterator();
+        while (result.size() < count && iterator.hasNext()) {
+            result.add(iterator.next().film);
+        }
+        return result;
+    }
+
+    @Override
+    public void clear() {
+        entries.clear();
+        ranking.clear();
+    }
+
+    private static final class Entry {
+        private final int filmId;
+        private final int likes;
+        private final Film film;
+
+        private Entry(Film film) {
+            this.filmId = film.getId();
+            this.likes = film.getLikes().size();
+            this.film = film;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.List;
+
+/**
+ * Films ordered by number of likes, kept up to date by {@link InMemoryFilmStorage}
+ * so that a top-N query does not sort the whole catalogue.
+ * Callers must hold the film's monitor while calling {@link #put} or {@link #remove}.
+ */
+public interface FilmRanking {
+
+    /**
+     * Ranks a created or changed film.
+     * @param likesDelta change of the number of likes of the film since it was last put, all of them for a new film
+     */
+    void put(Film film, int likesDelta);
+
+    /**
+     * Stops ranking a film that is no longer stored; film is the instance that was last put.
+     */
+    void remove(Film film);
+
+    /**
+     * @return up to count films with the most likes, ties broken by id
+     */
+    List<Film> top(int count);
+
+    void clear();
+}
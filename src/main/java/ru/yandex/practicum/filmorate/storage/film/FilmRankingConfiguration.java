@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Selects how {@link InMemoryFilmStorage} ranks popular films with {@code filmorate.popularity.mode}:
+ * {@code exact} (the default) keeps every film ordered, {@code approximate} keeps only the heavy hitters,
+ * see {@link HeavyHittersRanking}. The database storage ranks with a query either way.
+ */
+@Configuration
+@Profile("!db")
+public class FilmRankingConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(value = "filmorate.popularity.mode", havingValue = "exact", matchIfMissing = true)
+    public FilmRanking exactFilmRanking() {
+        return new FilmPopularityIndex();
+    }
+
+    @Bean
+    @ConditionalOnProperty(value = "filmorate.popularity.mode", havingValue = "approximate")
+    public FilmRanking approximateFilmRanking(
+            @Value("${filmorate.popularity.approximate.epsilon:0.0001}") double epsilon,
+            @Value("${filmorate.popularity.approximate.delta:0.001}") double delta,
+            @Value("${filmorate.popularity.approximate.capacity:1000}") int capacity) {
+        return new HeavyHittersRanking(epsilon, delta, capacity);
+    }
+}
@@ -2,14 +2,44 @@ package ru.yandex.practicum.filmorate.storage.film;
 
 import ru.yandex.practicum.filmorate.model.Film;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public interface FilmStorage {
 
     List<Film> findAll();
+
+    /**
+     * @return up to limit films with id greater than afterId, in ascending id order
+     */
+    List<Film> findPage(int afterId, int limit);
+
+    /**
+     * @return all films in ascending id order, read lazily while the stream is consumed;
+     * the stream must be closed by the caller
+     */
+    Stream<Film> streamAll();
     List<Film> findPopularFilms(int count);
     Optional<Film> findFilmById(int id);
+
+    /**
+     * @return films in the iteration order of ids, with null in place of a film that does not exist
+     */
+    List<Film> getFilms(Set<Integer> ids);
+
+    /**
+     * @return films released between the dates, both inclusive, ordered by release date and then by id
+     */
+    List<Film> findByReleaseDate(LocalDate from, LocalDate to);
+
+    /**
+     * @return films with duration between the bounds, both inclusive, ordered by duration and then by id
+     */
+    List<Film> findByDuration(int minDuration, int maxDuration);
     Film create(Film film);
     void delete(Film film);
 
@@ -19,4 +49,26 @@ public interface FilmStorage {
      */
     Film update(Film film);
 
+    /**
+     * @param filmId must be an id of existing film
+     */
+    void addLike(int filmId, int userId);
+
+    /**
+     * @param filmId must be an id of existing film
+     */
+    void deleteLike(int filmId, int userId);
+
+    /**
+     * Adds likes of several users to one film as a single change of the film.
+     * @param filmId must be an id of existing film
+     */
+    void addLikes(int filmId, Collection<Integer> userIds);
+
+    /**
+     * Removes likes of several users from one film as a single change of the film.
+     * @param filmId must be an id of existing film
+     */
+    void deleteLikes(int filmId, Collection<Integer> userIds);
+
 }
@@ -0,0 +1,109 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.util.CountMinSketch;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Approximate ranking in memory bounded by its parameters rather than by the number of films.
+ * <p>
+ * Like counts are estimated by a {@link CountMinSketch} fed with the changes of likes, and only a fixed number
+ * of candidates, the films with the highest estimates seen so far, are kept in order, as in Space-Saving:
+ * a film that is not a candidate replaces the weakest one once its estimate is higher.
+ * Estimates may exceed the true counts by the sketch's error, so films with close counts may swap places,
+ * and a candidate whose likes are deleted stays ranked by its lower estimate until a film outside
+ * gets a like and displaces it. Top-N queries for N above the capacity return only the candidates.
+ */
+public class HeavyHittersRanking implements FilmRanking {
+    private static final Comparator<Candidate> ORDER = Comparator
+            .comparingLong((Candidate candidate) -> candidate.estimate).reversed()
+            .thenComparingInt(candidate -> candidate.filmId);
+
+    private final CountMinSketch sketch;
+    private final int capacity;
+    private final NavigableSet<Candidate> ranking = new ConcurrentSkipListSet<>(ORDER);
+    private final Map<Integer, Candidate> candidates = new ConcurrentHashMap<>();
+
+    /**
+     * @param epsilon  estimates exceed true counts by at most epsilon times the total number of likes...
+     * @param delta    ...except with probability delta
+     * @param capacity number of films kept ranked
+     */
+    public HeavyHittersRanking(double epsilon, double delta, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity should be positive");
+        }
+        this.sketch = new CountMinSketch(epsilon, delta);
+        this.capacity = capacity;
+    }
+
+    @Override
+    public void put(Film film, int likesDelta) {
+        long estimate = likesDelta != 0 ? sketch.add(film.getId(), likesDelta) : sketch.estimate(film.getId());
+        if (!candidates.containsKey(film.getId()) && candidates.size() >= capacity) {
+            Iterator<Candidate> weakest = ranking.descendingIterator();
+            if (weakest.hasNext() && estimate < weakest.next().estimate) {
+                return; // fast path for the long tail, which cannot displace any candidate
+            }
+        }
+        Candidate candidate = new Candidate(film, estimate);
+        synchronized (this) {
+            Candidate previous = candidates.get(film.getId());
+            if (previous == null && candidates.size() >= capacity) {
+                Candidate weakest = ranking.last();
+                if (ORDER.compare(candidate, weakest) >= 0) {
+                    return;
+                }
+                previous = candidates.remove(weakest.filmId);
+            }
+            candidates.put(film.getId(), candidate);
+            if (previous != null) {
+                ranking.remove(previous);
+            }
+            ranking.add(candidate);
+        }
+    }
+
+    @Override
+    public void remove(Film film) {
+        sketch.add(film.getId(), -film.getLikes().size());
+        synchronized (this) {
+            Candidate previous = candidates.remove(film.getId());
+            if (previous != null) {
+                ranking.remove(previous);
+            }
+        }
+    }
+
+    @Override
+    public List<Film> top(int count) {
+        List<Film> result = new ArrayList<>(Math.min(count, capacity));
+        Iterator<Candidate> iterator = ranking.iterator();
+        while (result.size() < count && iterator.hasNext()) {
+            result.add(iterator.next().film);
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void clear() {
+        sketch.clear();
+        candidates.clear();
+        ranking.clear();
+    }
+
+    private static final class Candidate {
+        private final int filmId;
+        private final long estimate;
+        private final Film film;
+
+        private Candidate(Film film, long estimate) {
+            this.filmId = film.getId();
+            this.estimate = estimate;
+            this.film = film;
+        }
+    }
+}
@@ -1,47 +1,343 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.Film;
 
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Thread-safe in-memory storage. Films are kept in id order, so pages and streams need no sorting.
+ * Every mutation locks only the film instance currently stored under the given id,
+ * so writes to different films never contend.
+ * <p>
+ * Popular films come from a {@link FilmRanking}, exact by default, see {@link FilmRankingConfiguration}.
+ * Release dates and durations are indexed as well, so range queries only read the films in the range.
+ */
 @Component
+@Profile("!db")
 public class InMemoryFilmStorage implements FilmStorage {
-    private final Map<Integer, Film> films = new HashMap<>();
-    private int currentId = 1;
+    private final ConcurrentNavigableMap<Integer, Film> films = new ConcurrentSkipListMap<>();
+    private final FilmRanking popularityIndex;
+    /**
+     * Entries pack the release date (as epoch day) or the duration with the film id, see {@link #indexKey}.
+     */
+    private final NavigableSet<Long> releaseDateIndex = new ConcurrentSkipListSet<>();
+    private final NavigableSet<Long> durationIndex = new ConcurrentSkipListSet<>();
+    private final AtomicInteger currentId = new AtomicInteger(1);
+    private final ReadWriteLock creationLock = new ReentrantReadWriteLock();
+    /**
+     * Films with ids between the two are not ranked yet, see {@link #buildPopularityIndex()}.
+     */
+    private volatile int rankedUpTo = Integer.MAX_VALUE;
+    private volatile int rankedFrom = Integer.MAX_VALUE;
+
+    public InMemoryFilmStorage() {
+        this(new FilmPopularityIndex());
+    }
+
+    @Autowired
+    public InMemoryFilmStorage(FilmRanking popularityIndex) {
+        this.popularityIndex = popularityIndex;
+    }
 
     @Override
     public List<Film> findAll() {
         return List.copyOf(films.values());
     }
 
-    public List<Film> findPopularFilms(int count) {
-        return findAll().stream()
-                .sorted(Comparator.comparingInt((Film film) -> film.getLikes().size()).reversed())
-                .limit(count)
+    @Override
+    public List<Film> findPage(int afterId, int limit) {
+        return films.tailMap(afterId, false).values().stream()
+                .limit(limit)
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public Stream<Film> streamAll() {
+        return films.values().stream();
+    }
+
+    public List<Film> findPopularFilms(int count) {
+        if (rankedUpTo != Integer.MAX_VALUE) {
+            return films.values().stream()
+                    .sorted(Comparator.comparingInt((Film film) -> film.getLikes().size()).reversed()
+                            .thenComparingInt(Film::getId))
+                    .limit(count)
+                    .collect(Collectors.toList());
+        }
+        return popularityIndex.top(count);
+    }
+
     public Optional<Film> findFilmById(int id) {
         return Optional.ofNullable(films.get(id));
     }
 
+    @Override
+    public List<Film> getFilms(Set<Integer> ids) {
+        return ids.stream()
+                .map(films::get)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Film> findByReleaseDate(LocalDate from, LocalDate to) {
+        return findInRange(releaseDateIndex, from.toEpochDay(), to.toEpochDay(),
+                film -> film.getReleaseDate() != null
+                        && !film.getReleaseDate().isBefore(from) && !film.getReleaseDate().isAfter(to));
+    }
+
+    @Override
+    public List<Film> findByDuration(int minDuration, int maxDuration) {
+        return findInRange(durationIndex, minDuration, maxDuration,
+                film -> film.getDuration() >= minDuration && film.getDuration() <= maxDuration);
+    }
+
     @Override
     public Film create(Film film) {
-        film.setId(currentId++);
-        films.put(film.getId(), film);
+        creationLock.readLock().lock();
+        try {
+            film.setId(currentId.getAndIncrement());
+            store(film);
+        } finally {
+            creationLock.readLock().unlock();
+        }
         return film;
     }
 
+    /**
+     * Creates the film only if it gets the given id, i.e. no film was created since {@link #nextId()} returned it,
+     * so the caller can take a lock of the id before the film becomes visible.
+     * @return false if the id was taken
+     */
+    public boolean tryCreate(Film film, int id) {
+        creationLock.readLock().lock();
+        try {
+            if (!currentId.compareAndSet(id, id + 1)) {
+                return false;
+            }
+            film.setId(id);
+            store(film);
+            return true;
+        } finally {
+            creationLock.readLock().unlock();
+        }
+    }
+
+    private void store(Film film) {
+        synchronized (film) {
+            films.put(film.getId(), film);
+            reindex(null, film);
+            rank(film, film.getLikes().size());
+        }
+    }
+
     @Override
     public void delete(Film film) {
-        films.remove(film.getId());
+        mutate(film.getId(), current -> {
+            films.remove(current.getId());
+            reindex(current, null);
+            if (isRanked(current.getId())) {
+                popularityIndex.remove(current);
+            }
+        });
     }
 
     @Override
     public Film update(Film film) {
-        films.put(film.getId(), film);
+        mutate(film.getId(), current -> {
+            synchronized (film) {
+                films.put(film.getId(), film);
+                reindex(current, film);
+                rank(film, film.getLikes().size() - current.getLikes().size());
+            }
+        });
         return film;
     }
+
+    @Override
+    public void addLike(int filmId, int userId) {
+        mutate(filmId, film -> {
+            int likes = film.getLikes().size();
+            film.addLike(userId);
+            rank(film, film.getLikes().size() - likes);
+        });
+    }
+
+    @Override
+    public void deleteLike(int filmId, int userId) {
+        mutate(filmId, film -> {
+            int likes = film.getLikes().size();
+            film.deleteLike(userId);
+            rank(film, film.getLikes().size() - likes);
+        });
+    }
+
+    @Override
+    public void addLikes(int filmId, Collection<Integer> userIds) {
+        mutate(filmId, film -> {
+            int likes = film.getLikes().size();
+            userIds.forEach(film::addLike);
+            rank(film, film.getLikes().size() - likes);
+        });
+    }
+
+    @Override
+    public void deleteLikes(int filmId, Collection<Integer> userIds) {
+        mutate(filmId, film -> {
+            int likes = film.getLikes().size();
+            userIds.forEach(film::deleteLike);
+            rank(film, film.getLikes().size() - likes);
+        });
+    }
+
+    /**
+     * Puts a film under its already assigned id, replacing any film stored there, e.g. when recovering from a journal.
+     * Ids handed out by {@link #create} afterwards are greater than the id of the film.
+     * The film is not ranked by popularity until {@link #buildPopularityIndex()} is called.
+     */
+    public void restore(Film film) {
+        currentId.accumulateAndGet(film.getId() + 1, Math::max);
+        if (rankedUpTo != 0) {
+            rankedUpTo = 0;
+            rankedFrom = Integer.MAX_VALUE;
+            popularityIndex.clear();
+        }
+        synchronized (film) {
+            reindex(films.put(film.getId(), film), film);
+        }
+    }
+
+    /**
+     * Ranks every restored film by popularity. Until it returns, popular films are found by sorting all films,
+     * so it can run in the background while films are read and changed.
+     */
+    public void buildPopularityIndex() {
+        if (rankedUpTo == Integer.MAX_VALUE) {
+            return; // nothing was restored
+        }
+        creationLock.writeLock().lock();
+        try {
+            rankedFrom = currentId.get(); // films created from now on are ranked by create
+        } finally {
+            creationLock.writeLock().unlock();
+        }
+        for (int filmId : films.headMap(rankedFrom).keySet()) {
+            // the film is read again under its monitor, since an update may have replaced it meanwhile
+            // without ranking it
+            mutate(filmId, film -> {
+                popularityIndex.put(film, film.getLikes().size());
+                rankedUpTo = filmId;
+            });
+        }
+        rankedUpTo = Integer.MAX_VALUE;
+        rankedFrom = Integer.MAX_VALUE;
+    }
+
+    /**
+     * Ranks the changed film unless {@link #buildPopularityIndex()} has yet to reach it and will rank it whole.
+     * Must be called while holding the film's monitor.
+     */
+    private void rank(Film film, int likesDelta) {
+        if (isRanked(film.getId())) {
+            popularityIndex.put(film, likesDelta);
+        }
+    }
+
+    private boolean isRanked(int filmId) {
+        return filmId <= rankedUpTo || filmId >= rankedFrom;
+    }
+
+    /**
+     * Films are checked against the range once more, since they may have changed after the index was read.
+     */
+    private List<Film> findInRange(NavigableSet<Long> index, long from, long to, Predicate<Film> inRange) {
+        if (from > to) {
+            return new ArrayList<>();
+        }
+        return index.subSet(indexKey(from, 0), true, indexKey(to, Integer.MAX_VALUE), true).stream()
+                .map(key -> films.get((int) (long) key))
+                .filter(film -> film != null && inRange.test(film))
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Moves index entries of a film from its previous state to the current one, either may be null.
+     * New entries are added before the old ones are removed, so concurrent range queries do not miss the film.
+     */
+    private void reindex(Film previous, Film film) {
+        reindex(releaseDateIndex, releaseDateKey(previous), releaseDateKey(film));
+        reindex(durationIndex, durationKey(previous), durationKey(film));
+    }
+
+    private static void reindex(NavigableSet<Long> index, Long previousKey, Long key) {
+        if (Objects.equals(previousKey, key)) {
+            return;
+        }
+        if (key != null) {
+            index.add(key);
+        }
+        if (previousKey != null) {
+            index.remove(previousKey);
+        }
+    }
+
+    private static Long releaseDateKey(Film film) {
+        return film != null && film.getReleaseDate() != null
+                ? indexKey(film.getReleaseDate().toEpochDay(), film.getId()) : null;
+    }
+
+    private static Long durationKey(Film film) {
+        return film != null ? indexKey(film.getDuration(), film.getId()) : null;
+    }
+
+    /**
+     * @return key ordered by the value and then by the film id; values must fit into an int
+     */
+    private static long indexKey(long value, int filmId) {
+        return (value << 32) | (filmId & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return id the next created film will get
+     */
+    public int nextId() {
+        return currentId.get();
+    }
+
+    public void restoreNextId(int nextId) {
+        currentId.accumulateAndGet(nextId, Math::max);
+    }
+
+    /**
+     * Runs the mutation while holding the monitor of the film currently stored under the id.
+     * Retries if the film was replaced in between; does nothing if it was deleted.
+     */
+    private void mutate(int filmId, Consumer<Film> mutation) {
+        while (true) {
+            Film film = films.get(filmId);
+            if (film == null) {
+                return;
+            }
+            synchronized (film) {
+                if (films.get(filmId) == film) {
+                    mutation.accept(film);
+                    return;
+                }
+            }
+        }
+    }
 }
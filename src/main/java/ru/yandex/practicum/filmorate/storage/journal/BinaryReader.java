@@ -0,0 +1,125 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Reads what {@link BinaryWriter} wrote, either from a channel through one large direct buffer
+ * or straight from the page cache through regions of a file mapped one after another, see {@link #mapped}.
+ */
+final class BinaryReader {
+    private final ReadableByteChannel channel;
+    private final FileChannel mappedFile;
+    private final int regionSize;
+    private ByteBuffer buffer;
+    /**
+     * Offset in the mapped file of the first byte of the current region.
+     */
+    private long regionStart;
+
+    BinaryReader(ReadableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.mappedFile = null;
+        this.regionSize = 0;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize).flip();
+    }
+
+    private BinaryReader(FileChannel file, int regionSize) {
+        this.channel = null;
+        this.mappedFile = file;
+        this.regionSize = regionSize;
+        this.buffer = ByteBuffer.allocate(0);
+    }
+
+    /**
+     * Reads the file through read-only mappings of regionSize bytes, so nothing is copied into the heap
+     * but the values themselves; a value crossing the end of a region is read after mapping the next region
+     * from its first byte. Files of any size can be read, since one mapping is limited to 2 GB.
+     */
+    static BinaryReader mapped(FileChannel file, int regionSize) {
+        return new BinaryReader(file, regionSize);
+    }
+
+    /**
+     * Makes the given number of bytes available in {@link #buffer()}.
+     * @return false if the channel ends before that
+     */
+    boolean request(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return true;
+        }
+        if (mappedFile != null) {
+            return mapNextRegion(bytes);
+        }
+        if (bytes > buffer.capacity()) {
+            buffer = ByteBuffer.allocateDirect(Math.max(bytes, buffer.capacity() * 2)).put(buffer);
+        } else {
+            buffer.compact();
+        }
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                buffer.flip();
+                return false;
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+
+    /**
+     * @return buffer positioned at the next unread byte
+     */
+    ByteBuffer buffer() {
+        return buffer;
+    }
+
+    byte getByte() throws IOException {
+        require(1);
+        return buffer.get();
+    }
+
+    int getInt() throws IOException {
+        require(Integer.BYTES);
+        return buffer.getInt();
+    }
+
+    long getLong() throws IOException {
+        require(Long.BYTES);
+        return buffer.getLong();
+    }
+
+    String getString() throws IOException {
+        int length = getInt();
+        if (length < 0) {
+            return null;
+        }
+        require(length);
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    LocalDate getDate() throws IOException {
+        long epochDay = getLong();
+        return epochDay == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    private boolean mapNextRegion(int bytes) throws IOException {
+        long offset = regionStart + buffer.position();
+        long size = Math.min(Math.max(regionSize, bytes), mappedFile.size() - offset);
+        buffer = mappedFile.map(FileChannel.MapMode.READ_ONLY, offset, size);
+        regionStart = offset;
+        return size >= bytes;
+    }
+
+    private void require(int bytes) throws IOException {
+        if (!request(bytes)) {
+            throw new EOFException();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Growable big-endian buffer for journal records and snapshots. Strings are written as a UTF-8 byte count
+ * followed by the bytes, dates as epoch days; -1 and {@link Long#MIN_VALUE} stand for null.
+ */
+final class BinaryWriter {
+    private ByteBuffer buffer;
+
+    BinaryWriter(int initialCapacity) {
+        buffer = ByteBuffer.allocate(initialCapacity);
+    }
+
+    BinaryWriter putByte(int value) {
+        ensure(1).put((byte) value);
+        return this;
+    }
+
+    BinaryWriter putInt(int value) {
+        ensure(Integer.BYTES).putInt(value);
+        return this;
+    }
+
+    BinaryWriter putLong(long value) {
+        ensure(Long.BYTES).putLong(value);
+        return this;
+    }
+
+    BinaryWriter putInts(int[] values) {
+        ensure(Integer.BYTES * (values.length + 1)).putInt(values.length);
+        buffer.asIntBuffer().put(values);
+        buffer.position(buffer.position() + Integer.BYTES * values.length);
+        return this;
+    }
+
+    BinaryWriter putString(String value) {
+        if (value == null) {
+            return putInt(-1);
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensure(Integer.BYTES + bytes.length).putInt(bytes.length).put(bytes);
+        return this;
+    }
+
+    BinaryWriter putDate(LocalDate value) {
+        return putLong(value == null ? Long.MIN_VALUE : value.toEpochDay());
+    }
+
+    int size() {
+        return buffer.position();
+    }
+
+    /**
+     * @return buffer with everything written so far, sharing the content with this writer
+     */
+    ByteBuffer contents() {
+        return buffer.duplicate().flip();
+    }
+
+    void writeTo(WritableByteChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private ByteBuffer ensure(int bytes) {
+        if (buffer.remaining() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+            buffer = grown.put(buffer.flip());
+        }
+        return buffer;
+    }
+}
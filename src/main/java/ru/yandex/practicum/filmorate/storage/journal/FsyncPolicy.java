@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+/**
+ * When the journal forces appended records from the page cache to the disk.
+ * The log is memory-mapped, so records survive a crash of the process with every policy;
+ * the policy only decides what survives a crash of the machine.
+ */
+public enum FsyncPolicy {
+    /**
+     * Every mutation returns only after its record is on the disk. Concurrent mutations share one fsync.
+     */
+    ALWAYS,
+    /**
+     * Records are forced every {@code filmorate.journal.fsync-interval-ms}, so up to that much can be lost.
+     */
+    INTERVAL,
+    /**
+     * Records are forced only on snapshots and on shutdown and otherwise reach the disk whenever the OS writes them.
+     */
+    NEVER
+}
@@ -0,0 +1,154 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+
+/**
+ * Logs every change of the in-memory film storage to the {@link StorageJournal}.
+ * A change and its record are made under one lock striped by film id, so the log keeps the order
+ * in which changes of the same film were applied.
+ */
+public class JournalingFilmStorage implements FilmStorage {
+    private static final int LOCK_STRIPES = 256;
+
+    private final InMemoryFilmStorage delegate;
+    private final StorageJournal journal;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    public JournalingFilmStorage(InMemoryFilmStorage delegate, StorageJournal journal) {
+        this.delegate = delegate;
+        this.journal = journal;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @Override
+    public List<Film> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<Film> findPage(int afterId, int limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public Stream<Film> streamAll() {
+        return delegate.streamAll();
+    }
+
+    @Override
+    public List<Film> findPopularFilms(int count) {
+        return delegate.findPopularFilms(count);
+    }
+
+    @Override
+    public Optional<Film> findFilmById(int id) {
+        return delegate.findFilmById(id);
+    }
+
+    @Override
+    public List<Film> getFilms(Set<Integer> ids) {
+        return delegate.getFilms(ids);
+    }
+
+    @Override
+    public List<Film> findByReleaseDate(LocalDate from, LocalDate to) {
+        return delegate.findByReleaseDate(from, to);
+    }
+
+    @Override
+    public List<Film> findByDuration(int minDuration, int maxDuration) {
+        return delegate.findByDuration(minDuration, maxDuration);
+    }
+
+    /**
+     * The film is stored and logged under the lock of the id it gets, so no change of it is logged before it.
+     */
+    @Override
+    public Film create(Film film) {
+        long position;
+        while (true) {
+            int id = delegate.nextId();
+            synchronized (locks[Math.floorMod(id, locks.length)]) {
+                if (delegate.tryCreate(film, id)) {
+                    position = journal.filmCreated(film);
+                    break;
+                }
+            }
+        }
+        journal.commit(position);
+        return film;
+    }
+
+    @Override
+    public void delete(Film film) {
+        logged(film.getId(), () -> {
+            delegate.delete(film);
+            return journal.filmDeleted(film.getId());
+        });
+    }
+
+    @Override
+    public Film update(Film film) {
+        logged(film.getId(), () -> {
+            delegate.update(film);
+            return journal.filmUpdated(film);
+        });
+        return film;
+    }
+
+    @Override
+    public void addLike(int filmId, int userId) {
+        logged(filmId, () -> {
+            delegate.addLike(filmId, userId);
+            return journal.likesAdded(filmId, userId);
+        });
+    }
+
+    @Override
+    public void deleteLike(int filmId, int userId) {
+        logged(filmId, () -> {
+            delegate.deleteLike(filmId, userId);
+            return journal.likesDeleted(filmId, userId);
+        });
+    }
+
+    @Override
+    public void addLikes(int filmId, Collection<Integer> userIds) {
+        logged(filmId, () -> {
+            delegate.addLikes(filmId, userIds);
+            return journal.likesAdded(filmId, userIds.stream().mapToInt(Integer::intValue).toArray());
+        });
+    }
+
+    @Override
+    public void deleteLikes(int filmId, Collection<Integer> userIds) {
+        logged(filmId, () -> {
+            delegate.deleteLikes(filmId, userIds);
+            return journal.likesDeleted(filmId, userIds.stream().mapToInt(Integer::intValue).toArray());
+        });
+    }
+
+    /**
+     * Runs the change and logs it under the lock of the film, then waits for the record to become durable
+     * outside of the lock.
+     */
+    private void logged(int filmId, LongSupplier change) {
+        long position;
+        synchronized (locks[Math.floorMod(filmId, locks.length)]) {
+            position = change.getAsLong();
+        }
+        journal.commit(position);
+    }
+}
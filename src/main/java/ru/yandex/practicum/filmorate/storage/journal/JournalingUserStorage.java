@@ -0,0 +1,141 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+
+/**
+ * Logs every change of the in-memory user storage to the {@link StorageJournal}.
+ * A change and its record are made under locks striped by user id, both users' stripes in ascending order
+ * for friendships, so the log keeps the order in which changes of the same user were applied.
+ */
+public class JournalingUserStorage implements UserStorage {
+    private static final int LOCK_STRIPES = 256;
+
+    private final InMemoryUserStorage delegate;
+    private final StorageJournal journal;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    public JournalingUserStorage(InMemoryUserStorage delegate, StorageJournal journal) {
+        this.delegate = delegate;
+        this.journal = journal;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @Override
+    public List<User> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<User> findPage(int afterId, int limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public Stream<User> streamAll() {
+        return delegate.streamAll();
+    }
+
+    @Override
+    public Optional<User> findUserById(int id) {
+        return delegate.findUserById(id);
+    }
+
+    @Override
+    public List<User> getUsers(Set<Integer> friends) {
+        return delegate.getUsers(friends);
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return delegate.findByEmail(email);
+    }
+
+    @Override
+    public List<User> findByLogin(String login) {
+        return delegate.findByLogin(login);
+    }
+
+    /**
+     * The user is stored and logged under the lock of the id it gets, so no change of it is logged before it.
+     */
+    @Override
+    public User create(User user) {
+        long position;
+        while (true) {
+            int id = delegate.nextId();
+            synchronized (locks[Math.floorMod(id, locks.length)]) {
+                if (delegate.tryCreate(user, id)) {
+                    position = journal.userCreated(user);
+                    break;
+                }
+            }
+        }
+        journal.commit(position);
+        return user;
+    }
+
+    @Override
+    public void delete(User user) {
+        logged(user.getId(), user.getId(), () -> {
+            delegate.delete(user);
+            return journal.userDeleted(user.getId());
+        });
+    }
+
+    @Override
+    public User update(User user) {
+        logged(user.getId(), user.getId(), () -> {
+            delegate.update(user);
+            return journal.userUpdated(user);
+        });
+        return user;
+    }
+
+    @Override
+    public void addFriend(int userId, int friendId) {
+        logged(userId, friendId, () -> {
+            delegate.addFriend(userId, friendId);
+            return journal.friendAdded(userId, friendId);
+        });
+    }
+
+    @Override
+    public void deleteFriend(int userId, int friendId) {
+        logged(userId, friendId, () -> {
+            delegate.deleteFriend(userId, friendId);
+            return journal.friendDeleted(userId, friendId);
+        });
+    }
+
+    @Override
+    public void addFriends(int userId, Collection<Integer> friendIds) {
+        friendIds.forEach(friendId -> addFriend(userId, friendId));
+    }
+
+    /**
+     * Runs the change and logs it under the locks of both users, then waits for the record to become durable
+     * outside of the locks.
+     */
+    private void logged(int userId, int otherId, LongSupplier change) {
+        int stripe = Math.floorMod(userId, locks.length);
+        int otherStripe = Math.floorMod(otherId, locks.length);
+        long position;
+        synchronized (locks[Math.min(stripe, otherStripe)]) {
+            synchronized (locks[Math.max(stripe, otherStripe)]) {
+                position = change.getAsLong();
+            }
+        }
+        journal.commit(position);
+    }
+}
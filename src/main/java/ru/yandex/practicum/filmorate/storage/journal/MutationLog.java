@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * One append-only log file written through a memory-mapped region, so an append is a plain memory copy.
+ * When a record does not fit, the current region is forced and the next one is mapped right after the last record.
+ * The unused tail of the last region stays zero-filled until {@link #close()} truncates it,
+ * which readers use to find the end of a log that was not closed.
+ * <p>
+ * Appends are not thread-safe and must be serialized by the caller; {@link #force()} may run concurrently.
+ */
+final class MutationLog implements Closeable {
+    private static final int REGION_SIZE = 16 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private volatile MappedByteBuffer region;
+    private long regionStart;
+
+    MutationLog(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        region = channel.map(FileChannel.MapMode.READ_WRITE, 0, REGION_SIZE);
+    }
+
+    void append(ByteBuffer record) throws IOException {
+        if (region.remaining() < record.remaining()) {
+            region.force();
+            long end = size();
+            region = channel.map(FileChannel.MapMode.READ_WRITE, end, Math.max(REGION_SIZE, record.remaining()));
+            regionStart = end;
+        }
+        region.put(record);
+    }
+
+    long size() {
+        return regionStart + region.position();
+    }
+
+    void force() {
+        region.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.truncate(size());
+        channel.close();
+    }
+}
@@ -0,0 +1,525 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Durability layer for {@link InMemoryFilmStorage} and {@link InMemoryUserStorage}.
+ * <p>
+ * Every mutation is appended to a memory-mapped write-ahead log as {@code [length][crc32][type][fields]};
+ * when it is forced to the disk depends on the {@link FsyncPolicy}. Periodically, and when the log grows past
+ * {@code maxLogSize}, the journal switches to a new log and writes a binary snapshot of both storages.
+ * Records are idempotent, so a snapshot taken while mutations go on is made consistent again by replaying
+ * the log that was started right before it. On startup {@link #recover()} loads the latest snapshot
+ * and replays the logs after it up to the first torn record.
+ * <p>
+ * Files in the directory: {@code snapshot-<generation>.bin} holds everything logged before
+ * {@code log-<generation>.wal}; older generations are deleted once a newer snapshot is written.
+ */
+public class StorageJournal {
+    private static final Logger log = LoggerFactory.getLogger(StorageJournal.class);
+    private static final Pattern FILE_NAME = Pattern.compile("(log|snapshot)-(\\d+)\\.(wal|bin)");
+    private static final int READ_BUFFER_SIZE = 8 * 1024 * 1024;
+    private static final int SNAPSHOT_REGION_SIZE = 256 * 1024 * 1024;
+    private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int SNAPSHOT_MAGIC = 0x464D534E;
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private static final byte FILM_CREATED = 1;
+    private static final byte FILM_UPDATED = 2;
+    private static final byte FILM_DELETED = 3;
+    private static final byte LIKES_ADDED = 4;
+    private static final byte LIKES_DELETED = 5;
+    private static final byte USER_CREATED = 6;
+    private static final byte USER_UPDATED = 7;
+    private static final byte USER_DELETED = 8;
+    private static final byte FRIEND_ADDED = 9;
+    private static final byte FRIEND_DELETED = 10;
+
+    private static final byte SNAPSHOT_END = 0;
+    private static final byte SNAPSHOT_FILM = 1;
+    private static final byte SNAPSHOT_USER = 2;
+
+    private final Path directory;
+    private final InMemoryFilmStorage filmStorage;
+    private final InMemoryUserStorage userStorage;
+    private final FsyncPolicy fsyncPolicy;
+    private final long snapshotIntervalNanos;
+    private final long maxLogSize;
+    private final boolean backgroundIndex;
+
+    private final Object syncLock = new Object();
+    private final Object snapshotLock = new Object();
+    // guarded by this
+    private MutationLog currentLog;
+    private long generation;
+    private long appendedPosition;
+    private volatile long durablePosition;
+    private volatile long lastSnapshotAt = System.nanoTime();
+
+    public StorageJournal(Path directory, InMemoryFilmStorage filmStorage, InMemoryUserStorage userStorage,
+                          FsyncPolicy fsyncPolicy, Duration snapshotInterval, long maxLogSize,
+                          boolean backgroundIndex) {
+        this.directory = directory;
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.fsyncPolicy = fsyncPolicy;
+        this.snapshotIntervalNanos = snapshotInterval.toNanos();
+        this.maxLogSize = maxLogSize;
+        this.backgroundIndex = backgroundIndex;
+    }
+
+    /**
+     * Loads the latest snapshot into the storages, replays the logs written after it and opens a new log.
+     * Must be called once, before any mutation is logged. With {@code backgroundIndex} the popularity order
+     * of the films is built by a background thread after this returns.
+     */
+    public void recover() throws IOException {
+        long startedAt = System.nanoTime();
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path tmp : files.filter(file -> file.toString().endsWith(".tmp")).collect(Collectors.toList())) {
+                Files.delete(tmp); // snapshot interrupted before it was complete
+            }
+        }
+        long snapshotGeneration = generations("snapshot").stream().mapToLong(Long::longValue).max().orElse(0);
+        if (snapshotGeneration > 0) {
+            loadSnapshot(snapshotFile(snapshotGeneration));
+        }
+        long records = 0;
+        long lastGeneration = snapshotGeneration;
+        for (long logGeneration : generations("log")) {
+            if (logGeneration >= snapshotGeneration) {
+                records += replay(logFile(logGeneration));
+            }
+            lastGeneration = Math.max(lastGeneration, logGeneration);
+        }
+        userStorage.reindexEmails();
+        synchronized (this) {
+            generation = lastGeneration + 1;
+            currentLog = new MutationLog(logFile(generation));
+        }
+        log.info("Recovered {} films and {} users from snapshot {} and {} log records in {} ms",
+                filmStorage.findAll().size(), userStorage.findAll().size(), snapshotGeneration, records,
+                Duration.ofNanos(System.nanoTime() - startedAt).toMillis());
+        if (backgroundIndex) {
+            Thread indexBuilder = new Thread(this::buildPopularityIndex, "popularity-index");
+            indexBuilder.setDaemon(true);
+            indexBuilder.start();
+        } else {
+            buildPopularityIndex();
+        }
+    }
+
+    private void buildPopularityIndex() {
+        long startedAt = System.nanoTime();
+        filmStorage.buildPopularityIndex();
+        log.info("Built the popularity index in {} ms", Duration.ofNanos(System.nanoTime() - startedAt).toMillis());
+    }
+
+    public long filmCreated(Film film) {
+        return append(record -> writeFilm(record.putByte(FILM_CREATED), film));
+    }
+
+    public long filmUpdated(Film film) {
+        return append(record -> writeFilm(record.putByte(FILM_UPDATED), film));
+    }
+
+    public long filmDeleted(int filmId) {
+        return append(record -> record.putByte(FILM_DELETED).putInt(filmId));
+    }
+
+    public long likesAdded(int filmId, int... userIds) {
+        return append(record -> record.putByte(LIKES_ADDED).putInt(filmId).putInts(userIds));
+    }
+
+    public long likesDeleted(int filmId, int... userIds) {
+        return append(record -> record.putByte(LIKES_DELETED).putInt(filmId).putInts(userIds));
+    }
+
+    public long userCreated(User user) {
+        return append(record -> writeUser(record.putByte(USER_CREATED), user));
+    }
+
+    public long userUpdated(User user) {
+        return append(record -> writeUser(record.putByte(USER_UPDATED), user));
+    }
+
+    public long userDeleted(int userId) {
+        return append(record -> record.putByte(USER_DELETED).putInt(userId));
+    }
+
+    public long friendAdded(int userId, int friendId) {
+        return append(record -> record.putByte(FRIEND_ADDED).putInt(userId).putInt(friendId));
+    }
+
+    public long friendDeleted(int userId, int friendId) {
+        return append(record -> record.putByte(FRIEND_DELETED).putInt(userId).putInt(friendId));
+    }
+
+    /**
+     * Makes the mutation logged at the given position durable as the {@link FsyncPolicy} requires.
+     * Should be called after the caller has released its own locks, so that waiting for the disk
+     * does not block other mutations.
+     */
+    public void commit(long position) {
+        if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+            syncTo(position);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.journal.fsync-interval-ms:1000}")
+    public void sync() {
+        if (fsyncPolicy == FsyncPolicy.INTERVAL) {
+            long position;
+            synchronized (this) {
+                position = appendedPosition;
+            }
+            syncTo(position);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.journal.snapshot-check-interval-ms:1000}")
+    public void snapshotIfDue() throws IOException {
+        long logSize;
+        synchronized (this) {
+            logSize = currentLog == null ? 0 : currentLog.size();
+        }
+        if (logSize >= maxLogSize || logSize > 0 && System.nanoTime() - lastSnapshotAt >= snapshotIntervalNanos) {
+            snapshot();
+        }
+    }
+
+    /**
+     * Switches to a new log, writes a snapshot of both storages and deletes the files it makes obsolete.
+     */
+    public void snapshot() throws IOException {
+        synchronized (snapshotLock) {
+            long startedAt = System.nanoTime();
+            long snapshotGeneration = roll();
+            Path file = snapshotFile(snapshotGeneration);
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            writeSnapshot(tmp);
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+            forceDirectory();
+            for (String kind : List.of("log", "snapshot")) {
+                for (long obsolete : generations(kind)) {
+                    if (obsolete < snapshotGeneration) {
+                        Files.deleteIfExists("log".equals(kind) ? logFile(obsolete) : snapshotFile(obsolete));
+                    }
+                }
+            }
+            lastSnapshotAt = System.nanoTime();
+            log.info("Wrote snapshot {} in {} ms", snapshotGeneration,
+                    Duration.ofNanos(lastSnapshotAt - startedAt).toMillis());
+        }
+    }
+
+    /**
+     * Takes a final snapshot, so the next start does not need to replay anything, and closes the log.
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        synchronized (snapshotLock) {
+            synchronized (this) {
+                if (currentLog == null) {
+                    return;
+                }
+            }
+            snapshot();
+            synchronized (syncLock) {
+                synchronized (this) {
+                    currentLog.close();
+                    currentLog = null;
+                }
+            }
+        }
+    }
+
+    private long append(Consumer<BinaryWriter> encoder) {
+        BinaryWriter writer = new BinaryWriter(64).putInt(0).putInt(0);
+        encoder.accept(writer);
+        ByteBuffer record = writer.contents();
+        CRC32 crc = new CRC32();
+        crc.update(record.duplicate().position(RECORD_HEADER_SIZE));
+        record.putInt(0, record.limit() - RECORD_HEADER_SIZE).putInt(Integer.BYTES, (int) crc.getValue());
+        synchronized (this) {
+            if (currentLog == null) {
+                throw new IllegalStateException("Journal is not open");
+            }
+            try {
+                currentLog.append(record);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            appendedPosition += record.limit();
+            return appendedPosition;
+        }
+    }
+
+    /**
+     * Forces the log once for every caller waiting at that moment: whoever gets the lock forces
+     * everything appended so far, and the callers behind it find their records already durable.
+     */
+    private void syncTo(long position) {
+        if (durablePosition >= position) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (durablePosition >= position) {
+                return;
+            }
+            MutationLog logToForce;
+            long target;
+            synchronized (this) {
+                logToForce = currentLog;
+                target = appendedPosition;
+            }
+            if (logToForce != null) {
+                logToForce.force();
+            }
+            durablePosition = target;
+        }
+    }
+
+    /**
+     * @return generation of the new log, which is also the generation of the snapshot to write next
+     */
+    private long roll() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                MutationLog next = new MutationLog(logFile(generation + 1));
+                currentLog.close();
+                currentLog = next;
+                generation++;
+                durablePosition = appendedPosition;
+                return generation;
+            }
+        }
+    }
+
+    private void writeSnapshot(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            BinaryWriter writer = new BinaryWriter(READ_BUFFER_SIZE + 64 * 1024)
+                    .putInt(SNAPSHOT_MAGIC)
+                    .putInt(SNAPSHOT_VERSION)
+                    .putInt(filmStorage.nextId())
+                    .putInt(userStorage.nextId());
+            try (Stream<Film> films = filmStorage.streamAll()) {
+                for (Iterator<Film> iterator = films.iterator(); iterator.hasNext(); ) {
+                    writeFilm(writer.putByte(SNAPSHOT_FILM), iterator.next());
+                    if (writer.size() >= READ_BUFFER_SIZE) {
+                        writer.writeTo(channel);
+                    }
+                }
+            }
+            try (Stream<User> users = userStorage.streamAll()) {
+                for (Iterator<User> iterator = users.iterator(); iterator.hasNext(); ) {
+                    writeUser(writer.putByte(SNAPSHOT_USER), iterator.next());
+                    if (writer.size() >= READ_BUFFER_SIZE) {
+                        writer.writeTo(channel);
+                    }
+                }
+            }
+            writer.putByte(SNAPSHOT_END).writeTo(channel);
+            channel.force(true);
+        }
+    }
+
+    /**
+     * The snapshot is memory-mapped, so a warm start reads it from the page cache without copying it.
+     */
+    private void loadSnapshot(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            BinaryReader reader = BinaryReader.mapped(channel, SNAPSHOT_REGION_SIZE);
+            if (reader.getInt() != SNAPSHOT_MAGIC || reader.getInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Unsupported snapshot format: " + file);
+            }
+            filmStorage.restoreNextId(reader.getInt());
+            userStorage.restoreNextId(reader.getInt());
+            for (byte type = reader.getByte(); type != SNAPSHOT_END; type = reader.getByte()) {
+                if (type == SNAPSHOT_FILM) {
+                    filmStorage.restore(readFilm(reader));
+                } else if (type == SNAPSHOT_USER) {
+                    userStorage.restore(readUser(reader));
+                } else {
+                    throw new IOException("Unknown snapshot entry " + type + " in " + file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Likes are applied to the films directly; the popularity order is built once after the replay.
+     * @return number of records replayed
+     */
+    private long replay(Path file) throws IOException {
+        long records = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            BinaryReader reader = new BinaryReader(channel, READ_BUFFER_SIZE);
+            CRC32 crc = new CRC32();
+            while (reader.request(RECORD_HEADER_SIZE)) {
+                int length = reader.getInt();
+                int checksum = reader.getInt();
+                if (length <= 0) {
+                    break; // zero-filled tail of a log that was not closed
+                }
+                if (!reader.request(length)) {
+                    log.warn("Ignoring incomplete record at the end of {}", file);
+                    break;
+                }
+                crc.reset();
+                crc.update(reader.buffer().duplicate().limit(reader.buffer().position() + length));
+                if ((int) crc.getValue() != checksum) {
+                    log.warn("Ignoring torn record and everything after it in {}", file);
+                    break;
+                }
+                int end = reader.buffer().position() + length;
+                apply(reader);
+                reader.buffer().position(end);
+                records++;
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Updates put the logged state without checks, like restores, since the log keeps the order of the changes
+     * of each film and user but not across them: an email passed from one user to another may be logged
+     * for the new owner before the previous owner's change.
+     */
+    private void apply(BinaryReader record) throws IOException {
+        byte type = record.getByte();
+        switch (type) {
+            case FILM_CREATED:
+                filmStorage.restore(readFilm(record));
+                break;
+            case FILM_UPDATED:
+                Film updated = readFilm(record);
+                if (filmStorage.findFilmById(updated.getId()).isPresent()) {
+                    filmStorage.restore(updated);
+                }
+                break;
+            case FILM_DELETED:
+                filmStorage.findFilmById(record.getInt()).ifPresent(filmStorage::delete);
+                break;
+            case LIKES_ADDED:
+            case LIKES_DELETED:
+                int filmId = record.getInt();
+                Film film = filmStorage.findFilmById(filmId).orElse(null);
+                for (int i = record.getInt(); i > 0; i--) {
+                    int userId = record.getInt();
+                    if (film != null && type == LIKES_ADDED) {
+                        film.addLike(userId);
+                    } else if (film != null) {
+                        film.deleteLike(userId);
+                    }
+                }
+                break;
+            case USER_CREATED:
+                userStorage.restore(readUser(record));
+                break;
+            case USER_UPDATED:
+                User user = readUser(record);
+                if (userStorage.findUserById(user.getId()).isPresent()) {
+                    userStorage.restore(user);
+                }
+                break;
+            case USER_DELETED:
+                userStorage.findUserById(record.getInt()).ifPresent(userStorage::delete);
+                break;
+            case FRIEND_ADDED:
+                userStorage.addFriend(record.getInt(), record.getInt());
+                break;
+            case FRIEND_DELETED:
+                userStorage.deleteFriend(record.getInt(), record.getInt());
+                break;
+            default:
+                throw new IOException("Unknown journal record " + type);
+        }
+    }
+
+    private static void writeFilm(BinaryWriter writer, Film film) {
+        writer.putInt(film.getId())
+                .putString(film.getName())
+                .putString(film.getDescription())
+                .putDate(film.getReleaseDate())
+                .putInt(film.getDuration())
+                .putInts(film.getLikes().toIntArray());
+    }
+
+    private static Film readFilm(BinaryReader reader) throws IOException {
+        Film film = new Film(reader.getInt(), reader.getString(), reader.getString(), reader.getDate(),
+                reader.getInt());
+        for (int i = reader.getInt(); i > 0; i--) {
+            film.addLike(reader.getInt());
+        }
+        return film;
+    }
+
+    private static void writeUser(BinaryWriter writer, User user) {
+        writer.putInt(user.getId())
+                .putString(user.getEmail())
+                .putString(user.getLogin())
+                .putString(user.getName())
+                .putDate(user.getBirthday())
+                .putInts(user.getFriends().toIntArray());
+    }
+
+    private static User readUser(BinaryReader reader) throws IOException {
+        User user = new User(reader.getInt(), reader.getString(), reader.getString(), reader.getString(),
+                reader.getDate());
+        for (int i = reader.getInt(); i > 0; i--) {
+            user.addFriend(reader.getInt());
+        }
+        return user;
+    }
+
+    private List<Long> generations(String kind) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> FILE_NAME.matcher(file.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .filter(matcher -> matcher.group(1).equals(kind))
+                    .map(matcher -> Long.parseLong(matcher.group(2)))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private Path logFile(long generation) {
+        return directory.resolve(String.format("log-%010d.wal", generation));
+    }
+
+    private Path snapshotFile(long generation) {
+        return directory.resolve(String.format("snapshot-%010d.bin", generation));
+    }
+
+    private void forceDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true); // makes the rename durable; not supported on every platform
+        } catch (IOException e) {
+            log.debug("Could not force journal directory {}", directory, e);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.util.unit.DataSize;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Makes the in-memory storages durable when {@code filmorate.journal.enabled} is set:
+ * recovers them from {@code filmorate.journal.directory} on startup and logs every change from then on.
+ * Cannot be combined with {@code filmorate.cache.enabled}, which wraps the storages as well.
+ */
+@Configuration
+@Profile("!db")
+@ConditionalOnProperty(value = "filmorate.journal.enabled", havingValue = "true")
+public class StorageJournalConfiguration {
+
+    @Bean
+    public StorageJournal storageJournal(InMemoryFilmStorage filmStorage, InMemoryUserStorage userStorage,
+                                         @Value("${filmorate.journal.directory:./journal}") Path directory,
+                                         @Value("${filmorate.journal.fsync:interval}") FsyncPolicy fsyncPolicy,
+                                         @Value("${filmorate.journal.snapshot-interval:10m}") Duration snapshotInterval,
+                                         @Value("${filmorate.journal.max-log-size:64MB}") DataSize maxLogSize,
+                                         @Value("${filmorate.journal.background-index:false}") boolean backgroundIndex) {
+        return new StorageJournal(directory, filmStorage, userStorage, fsyncPolicy, snapshotInterval,
+                maxLogSize.toBytes(), backgroundIndex);
+    }
+
+    /**
+     * Recovers once every singleton exists and before the web server starts. Recovering while the journal bean
+     * is created would call the timed storages and pull the meter registry, and with it the storages, into a cycle.
+     * Never lazy, so that {@code spring.main.lazy-initialization} does not skip the recovery.
+     */
+    @Bean
+    @Lazy(false)
+    public SmartInitializingSingleton storageJournalRecovery(StorageJournal storageJournal) {
+        return () -> {
+            try {
+                storageJournal.recover();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to recover the storages from the journal", e);
+            }
+        };
+    }
+
+    @Bean
+    @Primary
+    public FilmStorage journalingFilmStorage(InMemoryFilmStorage filmStorage, StorageJournal storageJournal) {
+        return new JournalingFilmStorage(filmStorage, storageJournal);
+    }
+
+    @Bean
+    @Primary
+    public UserStorage journalingUserStorage(InMemoryUserStorage userStorage, StorageJournal storageJournal) {
+        return new JournalingUserStorage(userStorage, storageJournal);
+    }
+}
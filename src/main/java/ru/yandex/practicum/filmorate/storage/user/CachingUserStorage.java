@@ -0,0 +1,97 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Read-through cache for {@link #findUserById} in front of any other user storage.
+ * Entries are invalidated on every change of the user, including friendships on either side.
+ */
+public class CachingUserStorage implements UserStorage {
+    private final UserStorage delegate;
+    private final Cache<Integer, User> cache;
+
+    public CachingUserStorage(UserStorage delegate, Cache<Integer, User> cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public Optional<User> findUserById(int id) {
+        return Optional.ofNullable(cache.get(id, userId -> delegate.findUserById(userId).orElse(null)));
+    }
+
+    @Override
+    public List<User> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<User> findPage(int afterId, int limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public Stream<User> streamAll() {
+        return delegate.streamAll();
+    }
+
+    @Override
+    public List<User> getUsers(Set<Integer> friends) {
+        return delegate.getUsers(friends);
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return delegate.findByEmail(email);
+    }
+
+    @Override
+    public List<User> findByLogin(String login) {
+        return delegate.findByLogin(login);
+    }
+
+    @Override
+    public User create(User user) {
+        return delegate.create(user);
+    }
+
+    @Override
+    public void delete(User user) {
+        delegate.delete(user);
+        cache.invalidate(user.getId());
+        cache.invalidateAll(user.getFriends()); // their friendships were deleted together with the user
+    }
+
+    @Override
+    public User update(User user) {
+        User updated = delegate.update(user);
+        cache.invalidate(user.getId());
+        return updated;
+    }
+
+    @Override
+    public void addFriend(int userId, int friendId) {
+        delegate.addFriend(userId, friendId);
+        cache.invalidateAll(List.of(userId, friendId));
+    }
+
+    @Override
+    public void deleteFriend(int userId, int friendId) {
+        delegate.deleteFriend(userId, friendId);
+        cache.invalidateAll(List.of(userId, friendId));
+    }
+
+    @Override
+    public void addFriends(int userId, Collection<Integer> friendIds) {
+        delegate.addFriends(userId, friendIds);
+        cache.invalidate(userId);
+        cache.invalidateAll(friendIds);
+    }
+}
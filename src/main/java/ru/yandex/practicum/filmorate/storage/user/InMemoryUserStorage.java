@@ -1,36 +1,124 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.IntSet;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Thread-safe in-memory storage. Users are kept in id order, so pages and streams need no sorting.
+ * A friendship change locks both users in ascending id order,
+ * so the graph always stays symmetric while changes to disjoint pairs of users run in parallel.
+ * An update keeps the friends of the user, and a user is deleted only once no friendship is left,
+ * as the database storage keeps them on update and cascades them on delete.
+ * Emails and logins are indexed by hash, so users are found by them without a scan.
+ * An email is claimed in its index before the user is stored with it, so no two users ever share one.
+ */
 @Component
+@Profile("!db")
 public class InMemoryUserStorage implements UserStorage {
-    private final Map<Integer, User> users = new HashMap<>();
-    private int currentId = 1;
+    private final ConcurrentNavigableMap<Integer, User> users = new ConcurrentSkipListMap<>();
+    private final Map<String, Integer> emailIndex = new ConcurrentHashMap<>();
+    private final Map<String, IntSet> loginIndex = new ConcurrentHashMap<>();
+    private final AtomicInteger currentId = new AtomicInteger(1);
 
     @Override
     public List<User> findAll() {
         return List.copyOf(users.values());
     }
 
+    @Override
+    public List<User> findPage(int afterId, int limit) {
+        return users.tailMap(afterId, false).values().stream()
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<User> streamAll() {
+        return users.values().stream();
+    }
+
+    /**
+     * @throws DuplicateKeyException if another user has the email
+     */
     @Override
     public User create(User user) {
-        user.setId(currentId++);
-        users.put(user.getId(), user);
+        user.setId(currentId.getAndIncrement());
+        store(user);
         return user;
     }
 
+    /**
+     * Creates the user only if it gets the given id, i.e. no user was created since {@link #nextId()} returned it,
+     * so the caller can take a lock of the id before the user becomes visible.
+     * @return false if the id was taken
+     * @throws DuplicateKeyException if another user has the email
+     */
+    public boolean tryCreate(User user, int id) {
+        if (!currentId.compareAndSet(id, id + 1)) {
+            return false;
+        }
+        user.setId(id);
+        store(user);
+        return true;
+    }
+
+    private void store(User user) {
+        claimEmail(user);
+        users.put(user.getId(), user);
+        reindex(null, user);
+    }
+
+    /**
+     * Ends the friendships of the user first, each under the locks of both users, then removes the user
+     * unless a friendship was added meanwhile, in which case it starts over.
+     */
     @Override
     public void delete(User user) {
-        users.remove(user.getId());
+        int id = user.getId();
+        while (true) {
+            User current = users.get(id);
+            if (current == null) {
+                return;
+            }
+            for (int friendId : current.getFriends().toIntArray()) {
+                unfriend(id, friendId);
+            }
+            mutate(id, id, (stored, same) -> {
+                if (stored.getFriends().isEmpty()) {
+                    users.remove(id);
+                    reindex(stored, null);
+                }
+            });
+        }
     }
 
+    /**
+     * @throws DuplicateKeyException if another user has the email
+     */
     @Override
     public User update(User user) {
-        users.put(user.getId(), user);
+        mutate(user.getId(), user.getId(), (current, same) -> {
+            claimEmail(user);
+            if (user != current) {
+                user.getFriends().clear();
+                user.getFriends().addAll(current.getFriends());
+            }
+            users.put(user.getId(), user);
+            reindex(current, user);
+        });
         return user;
     }
 
@@ -45,4 +133,167 @@ public class InMemoryUserStorage implements UserStorage {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public Optional<User> findByEmail(String email) {
+        Integer id = emailIndex.get(email);
+        return Optional.ofNullable(id != null ? users.get(id) : null)
+                .filter(user -> email.equals(user.getEmail()));
+    }
+
+    @Override
+    public List<User> findByLogin(String login) {
+        return findIndexed(loginIndex, login, User::getLogin);
+    }
+
+    @Override
+    public void addFriend(int userId, int friendId) {
+        mutate(userId, friendId, (user, friend) -> {
+            user.addFriend(friend.getId());
+            friend.addFriend(user.getId());
+        });
+    }
+
+    @Override
+    public void deleteFriend(int userId, int friendId) {
+        mutate(userId, friendId, (user, friend) -> {
+            user.deleteFriend(friend.getId());
+            friend.deleteFriend(user.getId());
+        });
+    }
+
+    @Override
+    public void addFriends(int userId, Collection<Integer> friendIds) {
+        friendIds.forEach(friendId -> addFriend(userId, friendId));
+    }
+
+    /**
+     * Ends a friendship from both sides, or drops the friend from the user's set alone if the friend is gone.
+     */
+    private void unfriend(int userId, int friendId) {
+        if (users.containsKey(friendId)) {
+            deleteFriend(userId, friendId);
+        } else {
+            mutate(userId, userId, (user, same) -> user.deleteFriend(friendId));
+        }
+    }
+
+    /**
+     * Puts a user under its already assigned id, replacing any user stored there, e.g. when recovering from a journal.
+     * Ids handed out by {@link #create} afterwards are greater than the id of the user.
+     * The email is not checked: if users stored before emails had to be unique share it, it is indexed
+     * with the lowest id, so the earliest of them keeps it.
+     */
+    public void restore(User user) {
+        currentId.accumulateAndGet(user.getId() + 1, Math::max);
+        reindex(users.put(user.getId(), user), user);
+        emailIndex.merge(user.getEmail(), user.getId(),
+                (owner, id) -> owner < id && holdsEmail(owner, user.getEmail()) ? owner : id);
+    }
+
+    /**
+     * Indexes every email with the lowest id of the users having it. For the end of a recovery: restores
+     * replayed in log order may leave an email unindexed, when it passed between users whose changes were logged
+     * in a different order than applied.
+     */
+    public void reindexEmails() {
+        emailIndex.clear();
+        users.values().forEach(user -> emailIndex.putIfAbsent(user.getEmail(), user.getId()));
+    }
+
+    private boolean holdsEmail(int id, String email) {
+        User user = users.get(id);
+        return user != null && email.equals(user.getEmail());
+    }
+
+    /**
+     * @throws DuplicateKeyException if another user has the email
+     */
+    private void claimEmail(User user) {
+        Integer owner = emailIndex.putIfAbsent(user.getEmail(), user.getId());
+        if (owner != null && owner != user.getId()) {
+            throw new DuplicateKeyException("email: " + user.getEmail() + " is already used");
+        }
+    }
+
+    /**
+     * Users are checked against the key once more, since they may have been replaced after the index was read.
+     */
+    private List<User> findIndexed(Map<String, IntSet> index, String key, Function<User, String> attribute) {
+        IntSet ids = index.get(key);
+        if (ids == null) {
+            return new ArrayList<>();
+        }
+        return Arrays.stream(ids.toIntArray())
+                .mapToObj(users::get)
+                .filter(user -> user != null && key.equals(attribute.apply(user)))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Moves index entries of a user from its previous state to the current one, either may be null.
+     * The current email must have been claimed already.
+     */
+    private void reindex(User previous, User user) {
+        if (previous != null && (user == null || !previous.getEmail().equals(user.getEmail()))) {
+            emailIndex.remove(previous.getEmail(), previous.getId());
+        }
+        reindex(loginIndex, previous, user, User::getLogin);
+    }
+
+    private static void reindex(Map<String, IntSet> index, User previous, User user, Function<User, String> attribute) {
+        String previousKey = previous != null ? attribute.apply(previous) : null;
+        String key = user != null ? attribute.apply(user) : null;
+        if (Objects.equals(previousKey, key)) {
+            return;
+        }
+        if (key != null) {
+            index.compute(key, (k, ids) -> {
+                IntSet result = ids != null ? ids : new IntSet();
+                result.add(user.getId());
+                return result;
+            });
+        }
+        if (previousKey != null) {
+            index.computeIfPresent(previousKey, (k, ids) -> {
+                ids.remove(previous.getId());
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    /**
+     * @return id the next created user will get
+     */
+    public int nextId() {
+        return currentId.get();
+    }
+
+    public void restoreNextId(int nextId) {
+        currentId.accumulateAndGet(nextId, Math::max);
+    }
+
+    /**
+     * Runs the mutation while holding the monitors of both users currently stored under the ids,
+     * taken in ascending id order to rule out deadlocks. Retries if either user was replaced in between;
+     * does nothing if either was deleted.
+     */
+    private void mutate(int userId, int otherId, BiConsumer<User, User> mutation) {
+        while (true) {
+            User user = users.get(userId);
+            User other = users.get(otherId);
+            if (user == null || other == null) {
+                return;
+            }
+            User first = userId <= otherId ? user : other;
+            User second = userId <= otherId ? other : user;
+            synchronized (first) {
+                synchronized (second) {
+                    if (users.get(userId) == user && users.get(otherId) == other) {
+                        mutation.accept(user, other);
+                        return;
+                    }
+                }
+            }
+        }
+    }
 }
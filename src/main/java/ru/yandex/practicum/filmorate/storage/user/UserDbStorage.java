@@ -0,0 +1,178 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.BufferedRelationWriter;
+
+import javax.annotation.PreDestroy;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * User storage on top of the relational schema from schema.sql.
+ * Friendships are stored in both directions and written through a {@link BufferedRelationWriter},
+ * so they reach the database in JDBC batches.
+ */
+@Component
+@Profile("db")
+public class UserDbStorage implements UserStorage {
+    private static final int STREAM_PAGE_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final SimpleJdbcInsert userInsert;
+    private final BufferedRelationWriter friendshipWriter;
+
+    public UserDbStorage(JdbcTemplate jdbcTemplate, @Value("${filmorate.db.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.userInsert = new SimpleJdbcInsert(jdbcTemplate)
+                .withTableName("users")
+                .usingColumns("email", "login", "name", "birthday")
+                .usingGeneratedKeyColumns("id");
+        this.friendshipWriter = new BufferedRelationWriter(jdbcTemplate,
+                "MERGE INTO friendships (user_id, friend_id) KEY (user_id, friend_id) " +
+                        "SELECT v.user_id, v.friend_id FROM (VALUES (CAST(? AS INT), CAST(? AS INT))) " +
+                        "AS v (user_id, friend_id) " +
+                        "WHERE EXISTS (SELECT 1 FROM users WHERE id = v.user_id) " +
+                        "AND EXISTS (SELECT 1 FROM users WHERE id = v.friend_id)",
+                "DELETE FROM friendships WHERE user_id = ? AND friend_id = ?",
+                batchSize);
+    }
+
+    @Override
+    public User create(User user) {
+        Number id = userInsert.executeAndReturnKey(new MapSqlParameterSource()
+                .addValue("email", user.getEmail())
+                .addValue("login", user.getLogin())
+                .addValue("name", user.getName())
+                .addValue("birthday", Date.valueOf(user.getBirthday())));
+        user.setId(id.intValue());
+        return user;
+    }
+
+    @Override
+    public void delete(User user) {
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", user.getId());
+        friendshipWriter.discard(user.getId());
+    }
+
+    @Override
+    public User update(User user) {
+        jdbcTemplate.update("UPDATE users SET email = ?, login = ?, name = ?, birthday = ? WHERE id = ?",
+                user.getEmail(), user.getLogin(), user.getName(), Date.valueOf(user.getBirthday()), user.getId());
+        return user;
+    }
+
+    @Override
+    public Optional<User> findUserById(int id) {
+        return friendshipWriter.read(() -> withFriends(jdbcTemplate.query(
+                "SELECT * FROM users WHERE id = ?", this::mapUser, id))).stream().findFirst();
+    }
+
+    @Override
+    public List<User> findAll() {
+        return friendshipWriter.read(() -> withFriends(jdbcTemplate.query("SELECT * FROM users ORDER BY id", this::mapUser)));
+    }
+
+    @Override
+    public List<User> findPage(int afterId, int limit) {
+        return friendshipWriter.read(() -> withFriends(jdbcTemplate.query(
+                "SELECT * FROM users WHERE id > ? ORDER BY id LIMIT ?", this::mapUser, afterId, limit)));
+    }
+
+    @Override
+    public Stream<User> streamAll() {
+        return Stream.iterate(findPage(0, STREAM_PAGE_SIZE),
+                        page -> !page.isEmpty(),
+                        page -> findPage(page.get(page.size() - 1).getId(), STREAM_PAGE_SIZE))
+                .flatMap(List::stream);
+    }
+
+    @Override
+    public List<User> getUsers(Set<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Integer, User> usersById = friendshipWriter.read(() -> withFriends(namedJdbcTemplate.query(
+                "SELECT * FROM users WHERE id IN (:ids)", new MapSqlParameterSource("ids", ids), this::mapUser)))
+                .stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        return ids.stream()
+                .map(usersById::get)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return friendshipWriter.read(() -> withFriends(jdbcTemplate.query(
+                "SELECT * FROM users WHERE email = ?", this::mapUser, email))).stream().findFirst();
+    }
+
+    @Override
+    public List<User> findByLogin(String login) {
+        return friendshipWriter.read(() -> withFriends(jdbcTemplate.query(
+                "SELECT * FROM users WHERE login = ? ORDER BY id", this::mapUser, login)));
+    }
+
+    @Override
+    public void addFriend(int userId, int friendId) {
+        friendshipWriter.addBoth(userId, friendId);
+    }
+
+    @Override
+    public void deleteFriend(int userId, int friendId) {
+        friendshipWriter.removeBoth(userId, friendId);
+    }
+
+    @Override
+    public void addFriends(int userId, Collection<Integer> friendIds) {
+        friendIds.forEach(friendId -> addFriend(userId, friendId));
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.db.flush-interval-ms:1000}")
+    @PreDestroy
+    public void flush() {
+        friendshipWriter.flush();
+    }
+
+    /**
+     * Loads friends of all given users with one query and applies friendships that are not flushed yet.
+     * Must be called from inside {@link BufferedRelationWriter#read}.
+     */
+    private List<User> withFriends(List<User> users) {
+        if (users.isEmpty()) {
+            return users;
+        }
+        Map<Integer, User> usersById = users.stream().collect(Collectors.toMap(User::getId, Function.identity()));
+        namedJdbcTemplate.query("SELECT user_id, friend_id FROM friendships WHERE user_id IN (:ids)",
+                new MapSqlParameterSource("ids", usersById.keySet()),
+                rs -> {
+                    usersById.get(rs.getInt("user_id")).addFriend(rs.getInt("friend_id"));
+                });
+        for (User user : users) {
+            friendshipWriter.applyPending(user.getId(), user.getFriends());
+        }
+        return users;
+    }
+
+    private User mapUser(ResultSet rs, int rowNum) throws SQLException {
+        return new User(rs.getInt("id"),
+                rs.getString("email"),
+                rs.getString("login"),
+                rs.getString("name"),
+                rs.getDate("birthday").toLocalDate());
+    }
+}
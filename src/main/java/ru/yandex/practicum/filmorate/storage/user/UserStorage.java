@@ -2,9 +2,11 @@ package ru.yandex.practicum.filmorate.storage.user;
 
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Stream;
 
 public interface UserStorage {
 
@@ -18,5 +20,47 @@ public interface UserStorage {
     User update(User user);
     Optional<User> findUserById(int id);
     List<User> findAll();
+
+    /**
+     * @return up to limit users with id greater than afterId, in ascending id order
+     */
+    List<User> findPage(int afterId, int limit);
+
+    /**
+     * @return all users in ascending id order, read lazily while the stream is consumed;
+     * the stream must be closed by the caller
+     */
+    Stream<User> streamAll();
     List<User> getUsers(Set<Integer> friends);
+
+    /**
+     * @return the user with exactly this email; emails are unique
+     */
+    Optional<User> findByEmail(String email);
+
+    /**
+     * @return users with exactly this login in ascending id order
+     */
+    List<User> findByLogin(String login);
+
+    /**
+     * Adds the friendship in both directions as a single atomic change.
+     * @param userId must be an id of existing user
+     * @param friendId must be an id of existing user
+     */
+    void addFriend(int userId, int friendId);
+
+    /**
+     * Removes the friendship in both directions as a single atomic change.
+     * @param userId must be an id of existing user
+     * @param friendId must be an id of existing user
+     */
+    void deleteFriend(int userId, int friendId);
+
+    /**
+     * Adds several friendships of one user; each of them is added in both directions atomically.
+     * @param userId must be an id of existing user
+     * @param friendIds must be ids of existing users
+     */
+    void addFriends(int userId, Collection<Integer> friendIds);
 }
@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-Min Sketch of int keys: estimates of per-key counts in memory that does not depend on the number of keys.
+ * <p>
+ * With width {@code ceil(e / epsilon)} and depth {@code ceil(ln(1 / delta))}, an estimate exceeds the true count
+ * by more than {@code epsilon * total} with probability at most {@code delta}, where total is the sum of all counts.
+ * Estimates never go below the true count as long as no count is negative.
+ * Updates are lock-free, so they may run concurrently with each other and with estimates.
+ */
+public final class CountMinSketch {
+    private final int width;
+    private final int depth;
+    private final AtomicLongArray counts;
+
+    public CountMinSketch(double epsilon, double delta) {
+        if (epsilon <= 0 || epsilon >= 1 || delta <= 0 || delta >= 1) {
+            throw new IllegalArgumentException("epsilon and delta should be between 0 and 1");
+        }
+        this.width = (int) Math.ceil(Math.E / epsilon);
+        this.depth = (int) Math.ceil(Math.log(1 / delta));
+        this.counts = new AtomicLongArray(width * depth);
+    }
+
+    /**
+     * @param delta negative to take counts back, e.g. for deleted likes
+     * @return estimate of the key's count after the change
+     */
+    public long add(int key, long delta) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counts.addAndGet(index(row, key), delta));
+        }
+        return estimate;
+    }
+
+    public long estimate(int key) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counts.get(index(row, key)));
+        }
+        return estimate;
+    }
+
+    public void clear() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int depth() {
+        return depth;
+    }
+
+    /**
+     * Hashes the key with a different seed per row through the murmur3 finalizer.
+     */
+    private int index(int row, int key) {
+        long hash = key * 0x9E3779B97F4A7C15L + (row + 1) * 0xC2B2AE3D27D4EB4FL;
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return row * width + (int) Math.floorMod(hash, (long) width);
+    }
+}
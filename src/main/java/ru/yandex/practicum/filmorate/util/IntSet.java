@@ -0,0 +1,164 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.*;
+
+/**
+ * Set of ints kept as a sorted, growable {@code int[]}: about 4-6 bytes per element
+ * instead of 40+ bytes for a boxed entry of a {@link HashSet}.
+ * <p>
+ * Iterates in ascending order, so it is serialized by Jackson to the same JSON array as before.
+ * All methods are synchronized on the set itself; iterators work on a snapshot taken at creation time.
+ */
+public class IntSet extends AbstractSet<Integer> {
+    private static final int[] EMPTY = new int[0];
+    private static final int MIN_CAPACITY = 4;
+
+    private int[] elements = EMPTY;
+    private int size;
+
+    public synchronized boolean add(int value) {
+        int index = Arrays.binarySearch(elements, 0, size, value);
+        if (index >= 0) {
+            return false;
+        }
+        int insertionPoint = -index - 1;
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, Math.max(MIN_CAPACITY, size + (size >> 1)));
+        }
+        System.arraycopy(elements, insertionPoint, elements, insertionPoint + 1, size - insertionPoint);
+        elements[insertionPoint] = value;
+        size++;
+        return true;
+    }
+
+    public synchronized boolean remove(int value) {
+        int index = Arrays.binarySearch(elements, 0, size, value);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        size--;
+        return true;
+    }
+
+    public synchronized boolean contains(int value) {
+        return Arrays.binarySearch(elements, 0, size, value) >= 0;
+    }
+
+    /**
+     * @return sorted copy of the elements
+     */
+    public synchronized int[] toIntArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    /**
+     * @return sorted copy of at most limit elements greater than after, the smallest of them
+     */
+    public synchronized int[] page(int after, int limit) {
+        int index = Arrays.binarySearch(elements, 0, size, after);
+        int from = index >= 0 ? index + 1 : -index - 1;
+        return Arrays.copyOfRange(elements, from, from + Math.min(limit, size - from));
+    }
+
+    /**
+     * Systematic sample: every (size / maxSize)-th element starting from a position derived from the seed,
+     * so a large set is sampled without copying all of it.
+     * @return sorted copy of the elements if there are at most maxSize of them, otherwise maxSize of them
+     */
+    public synchronized int[] sample(int maxSize, int seed) {
+        if (size <= maxSize) {
+            return toIntArray();
+        }
+        int[] sample = new int[maxSize];
+        double step = (double) size / maxSize;
+        double offset = new SplittableRandom(seed).nextDouble() * step;
+        for (int i = 0; i < maxSize; i++) {
+            sample[i] = elements[(int) (offset + i * step)];
+        }
+        return sample;
+    }
+
+    /**
+     * Intersects the sets by taking a primitive snapshot of the smallest one and probing the others
+     * with binary search, so only the smallest set and the result are ever copied.
+     * @return new set with elements contained in every given set
+     */
+    public static IntSet intersection(IntSet... sets) {
+        IntSet result = new IntSet();
+        if (sets.length == 0) {
+            return result;
+        }
+        IntSet smallest = sets[0];
+        for (IntSet set : sets) {
+            if (set.size() < smallest.size()) {
+                smallest = set;
+            }
+        }
+        for (int value : smallest.toIntArray()) {
+            boolean containedInAll = true;
+            for (int i = 0; i < sets.length && containedInAll; i++) {
+                containedInAll = sets[i] == smallest || sets[i].contains(value);
+            }
+            if (containedInAll) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean add(Integer value) {
+        return add(value.intValue());
+    }
+
+    @Override
+    public boolean remove(Object value) {
+        return value instanceof Integer && remove(((Integer) value).intValue());
+    }
+
+    @Override
+    public boolean contains(Object value) {
+        return value instanceof Integer && contains(((Integer) value).intValue());
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized void clear() {
+        elements = EMPTY;
+        size = 0;
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+        int[] snapshot = toIntArray();
+        return new Iterator<>() {
+            private int position;
+
+            @Override
+            public boolean hasNext() {
+                return position < snapshot.length;
+            }
+
+            @Override
+            public Integer next() {
+                if (position >= snapshot.length) {
+                    throw new NoSuchElementException();
+                }
+                return snapshot[position++];
+            }
+
+            @Override
+            public void remove() {
+                if (position == 0) {
+                    throw new IllegalStateException();
+                }
+                IntSet.this.remove(snapshot[position - 1]);
+            }
+        };
+    }
+}
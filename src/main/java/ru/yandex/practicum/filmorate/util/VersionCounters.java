@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Versions of entities for conditional requests: the version of an id changes whenever the entity may have changed,
+ * and the total version whenever any of them may have.
+ * <p>
+ * Ids share a fixed number of counters, so memory does not depend on the number of entities; a change also changes
+ * the version of the ids sharing its counter, which only costs them a full response. Counters start from a random
+ * value, so versions from before a restart are not mistaken for current ones.
+ */
+public final class VersionCounters {
+    private final AtomicLongArray versions;
+    private final AtomicLong total;
+
+    /**
+     * @param counters number of counters shared by all ids
+     */
+    public VersionCounters(int counters) {
+        long start = ThreadLocalRandom.current().nextLong();
+        this.versions = new AtomicLongArray(counters);
+        for (int i = 0; i < counters; i++) {
+            versions.set(i, start);
+        }
+        this.total = new AtomicLong(start);
+    }
+
+    /**
+     * Must be called after the change is visible to readers, so a version is never newer than what is read with it.
+     */
+    public void changed(int id) {
+        versions.incrementAndGet(index(id));
+        total.incrementAndGet();
+    }
+
+    public long version(int id) {
+        return versions.get(index(id));
+    }
+
+    public long totalVersion() {
+        return total.get();
+    }
+
+    private int index(int id) {
+        return Math.floorMod(id * 0x9E3779B9, versions.length());
+    }
+}
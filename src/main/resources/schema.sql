@@ -0,0 +1,37 @@
+CREATE TABLE IF NOT EXISTS films (
+    id           INT AUTO_INCREMENT PRIMARY KEY,
+    name         VARCHAR(255) NOT NULL,
+    description  VARCHAR(255),
+    release_date DATE,
+    duration     INT
+);
+
+CREATE INDEX IF NOT EXISTS films_release_date_idx ON films (release_date);
+CREATE INDEX IF NOT EXISTS films_duration_idx ON films (duration);
+
+CREATE TABLE IF NOT EXISTS users (
+    id       INT AUTO_INCREMENT PRIMARY KEY,
+    email    VARCHAR(255) NOT NULL,
+    login    VARCHAR(255) NOT NULL,
+    name     VARCHAR(255),
+    birthday DATE
+);
+
+DROP INDEX IF EXISTS users_email_idx;
+CREATE UNIQUE INDEX IF NOT EXISTS users_email_unique_idx ON users (email);
+CREATE INDEX IF NOT EXISTS users_login_idx ON users (login);
+
+CREATE TABLE IF NOT EXISTS likes (
+    film_id INT NOT NULL REFERENCES films (id) ON DELETE CASCADE,
+    user_id INT NOT NULL,
+    PRIMARY KEY (film_id, user_id)
+);
+
+CREATE INDEX IF NOT EXISTS likes_user_id_idx ON likes (user_id);
+
+-- every friendship is stored in both directions
+CREATE TABLE IF NOT EXISTS friendships (
+    user_id   INT NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    friend_id INT NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    PRIMARY KEY (user_id, friend_id)
+);
@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import ru.yandex.practicum.filmorate.storage.film.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.CachingUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:filmorate")
+@ActiveProfiles("db")
+class FilmorateApplicationDbTests {
+	@Autowired
+	FilmStorage filmStorage;
+	@Autowired
+	UserStorage userStorage;
+	@Autowired
+	FilmDbStorage filmDbStorage;
+	@Autowired
+	UserDbStorage userDbStorage;
+
+	@Test
+	void dbProfileShouldUseCachedDbStorages() {
+		assertTrue(filmStorage instanceof CachingFilmStorage);
+		assertTrue(userStorage instanceof CachingUserStorage);
+	}
+
+}
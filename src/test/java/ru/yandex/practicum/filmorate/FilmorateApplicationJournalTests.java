@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.journal.JournalingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.journal.JournalingUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {"filmorate.journal.enabled=true", "filmorate.journal.directory=target/journal-test"})
+class FilmorateApplicationJournalTests {
+	@Autowired
+	FilmStorage filmStorage;
+	@Autowired
+	UserStorage userStorage;
+
+	@Test
+	void journalShouldWrapInMemoryStorages() {
+		assertTrue(filmStorage instanceof JournalingFilmStorage);
+		assertTrue(userStorage instanceof JournalingUserStorage);
+	}
+
+}
@@ -0,0 +1,40 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"filmorate.metrics.storage-refresh-interval=0s",
+		"filmorate.metrics.hot-path-timers=true", "filmorate.metrics.storage-timers=true"})
+class FilmorateApplicationMetricsTests {
+	@Autowired
+	FilmService filmService;
+	@Autowired
+	MeterRegistry meterRegistry;
+
+	@Test
+	void serviceAndStorageCallsShouldBeTimed() {
+		Film film = filmService.createFilm(new Film(0, "Film1", "Comedy", LocalDate.of(2020, 10, 25), 120));
+		filmService.addLike(film.getId(), 1);
+		assertThrows(NotFoundException.class, () -> filmService.getFilmById(-1));
+
+		assertEquals(1, meterRegistry.get("filmorate.service")
+				.tags("class", "FilmService", "method", "addLike", "outcome", "success").timer().count());
+		assertEquals(1, meterRegistry.get("filmorate.storage")
+				.tags("class", "InMemoryFilmStorage", "method", "addLike", "outcome", "success").timer().count());
+		assertEquals(1, meterRegistry.get("filmorate.service")
+				.tags("class", "FilmService", "method", "getFilmById", "outcome", "error").timer().count());
+		assertNull(meterRegistry.find("filmorate.service").tags("class", "UserLikesIndex").timer());
+		assertTrue(meterRegistry.get("filmorate.films").gauge().value() >= 1);
+		assertTrue(meterRegistry.get("filmorate.films.likes").gauge().value() >= 1);
+	}
+
+}
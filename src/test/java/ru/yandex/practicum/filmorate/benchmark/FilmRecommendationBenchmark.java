@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Film recommendations for a random user on a catalogue of 100k films liked by 1M users,
+ * each user liking 10 films skewed towards low film ids. Needs a heap of about 4 GB.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class FilmRecommendationBenchmark {
+    private static final int FILMS = 100_000;
+    private static final int USERS = 1_000_000;
+    private static final int LIKES_PER_USER = 10;
+
+    FilmService filmService;
+    SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        random = new SplittableRandom(42);
+        List<List<Integer>> likers = new ArrayList<>(FILMS);
+        for (int i = 0; i < FILMS; i++) {
+            filmStorage.create(new Film(0, "Film" + i, "Description", LocalDate.of(2000, 1, 1), 100));
+            likers.add(new ArrayList<>());
+        }
+        for (int userId = 1; userId <= USERS; userId++) {
+            for (int i = 0; i < LIKES_PER_USER; i++) {
+                likers.get(skewedFilmId() - 1).add(userId);
+            }
+        }
+        for (int i = 0; i < FILMS; i++) {
+            filmStorage.addLikes(i + 1, likers.get(i));
+        }
+        filmService = new FilmService(filmStorage);
+        filmService.getRecommendedFilms(1, 10); // builds the index of likes
+    }
+
+    @Benchmark
+    public List<Film> recommendTop10() {
+        return filmService.getRecommendedFilms(1 + random.nextInt(USERS), 10);
+    }
+
+    @Benchmark
+    public void addAndDeleteLike() {
+        int filmId = skewedFilmId();
+        int userId = USERS + 1 + random.nextInt(USERS);
+        filmService.addLike(filmId, userId);
+        filmService.deleteLike(filmId, userId);
+    }
+
+    private int skewedFilmId() {
+        double uniform = random.nextDouble();
+        return 1 + (int) (uniform * uniform * uniform * FILMS);
+    }
+}
@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Film search on a catalogue of 1M films with names of 3 words and descriptions of 12 words
+ * drawn from a vocabulary of 50k words, skewed towards the first words. Needs a heap of about 4 GB.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class FilmSearchBenchmark {
+    private static final int FILMS = 1_000_000;
+    private static final int WORDS = 50_000;
+
+    FilmService filmService;
+    String[] vocabulary;
+    SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        random = new SplittableRandom(42);
+        vocabulary = new String[WORDS];
+        for (int i = 0; i < WORDS; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int length = 4 + random.nextInt(6); word.length() < length; ) {
+                word.append((char) ('a' + random.nextInt(26)));
+            }
+            vocabulary[i] = word.toString();
+        }
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        for (int i = 0; i < FILMS; i++) {
+            filmStorage.create(new Film(0, text(3), text(12), LocalDate.of(2000, 1, 1), 100));
+        }
+        filmService = new FilmService(filmStorage);
+        filmService.searchFilms("warmup", 10); // builds the index
+    }
+
+    @Benchmark
+    public List<Film> searchOneWord() {
+        return filmService.searchFilms(skewedWord(), 10);
+    }
+
+    @Benchmark
+    public List<Film> searchTwoWordsWithPrefix() {
+        return filmService.searchFilms(skewedWord() + " " + skewedWord().substring(0, 3), 10);
+    }
+
+    @Benchmark
+    public List<Film> searchCommonWord() {
+        return filmService.searchFilms(vocabulary[random.nextInt(10)], 10);
+    }
+
+    private String text(int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            text.append(i == 0 ? "" : " ").append(skewedWord());
+        }
+        return text.toString();
+    }
+
+    private String skewedWord() {
+        double uniform = random.nextDouble();
+        return vocabulary[(int) (uniform * uniform * uniform * WORDS)];
+    }
+}
@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Film hot paths on catalogues of different sizes. Likes are skewed towards low film ids,
+ * so the popularity ranking looks like a real one rather than a uniform one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmServiceBenchmark {
+    private static final int USERS = 100_000;
+    private static final Duration TRENDING_WINDOW = Duration.ofHours(24);
+
+    @Param({"1000", "100000"})
+    int catalogSize;
+
+    FilmService filmService;
+    SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        filmService = new FilmService(new InMemoryFilmStorage());
+        random = new SplittableRandom(42);
+        for (int i = 0; i < catalogSize; i++) {
+            filmService.createFilm(newFilm(i));
+        }
+        for (int i = 0; i < catalogSize * 10; i++) {
+            filmService.addLike(skewedFilmId(), random.nextInt(USERS));
+        }
+    }
+
+    @Benchmark
+    public void createAndDeleteFilm() {
+        filmService.deleteFilm(filmService.createFilm(newFilm(0)));
+    }
+
+    @Benchmark
+    public void addAndDeleteLike() {
+        int filmId = skewedFilmId();
+        int userId = USERS + random.nextInt(USERS);
+        filmService.addLike(filmId, userId);
+        filmService.deleteLike(filmId, userId);
+    }
+
+    @Benchmark
+    public List<Film> popularTop10() {
+        return filmService.getPopularFilms(10);
+    }
+
+    @Benchmark
+    public List<Film> popularTop100() {
+        return filmService.getPopularFilms(100);
+    }
+
+    @Benchmark
+    public List<Film> trendingTop10() {
+        return filmService.getTrendingFilms(TRENDING_WINDOW, 10);
+    }
+
+    private int skewedFilmId() {
+        double uniform = random.nextDouble();
+        return 1 + (int) (uniform * uniform * uniform * catalogSize);
+    }
+
+    private static Film newFilm(int i) {
+        return new Film(0, "Film" + i, "Description", LocalDate.of(2000, 1, 1), 100);
+    }
+}
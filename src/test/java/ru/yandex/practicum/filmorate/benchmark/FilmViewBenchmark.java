@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Cost of writing the 10 most popular films with Jackson in the full view, with the ids of all likes,
+ * and in the summary view, with their number. Sizes of both bodies are printed on setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmViewBenchmark {
+    private static final int FILMS = 10;
+
+    @Param({"1000", "500000"})
+    int likesPerFilm;
+
+    List<Film> films;
+    ObjectMapper objectMapper;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        objectMapper = new ObjectMapper()
+                .findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        SplittableRandom random = new SplittableRandom(42);
+        films = new ArrayList<>();
+        for (int i = 1; i <= FILMS; i++) {
+            Film film = new Film(i, "Film" + i, "Description", LocalDate.of(2000, 1, 1), 100);
+            while (film.getLikes().size() < likesPerFilm) {
+                film.addLike(random.nextInt(10_000_000));
+            }
+            films.add(film);
+        }
+        System.out.printf("%n%d likes per film: full %d bytes, summary %d bytes%n", likesPerFilm,
+                full().length, summary().length);
+    }
+
+    @Benchmark
+    public byte[] full() throws Exception {
+        return objectMapper.writeValueAsBytes(films);
+    }
+
+    @Benchmark
+    public byte[] summary() throws Exception {
+        return objectMapper.writeValueAsBytes(films.stream().map(FilmSummary::of).collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import ru.yandex.practicum.filmorate.metrics.HotPathTimingAspect;
+import ru.yandex.practicum.filmorate.metrics.StorageTimingAspect;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead of {@link HotPathTimingAspect} and {@link StorageTimingAspect}: the same calls without timers,
+ * with timers around the service only, as enabled by {@code hot-path-timers}, and around the storage too.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HotPathTimingBenchmark {
+    private static final int FILMS = 10_000;
+
+    @Param({"none", "service", "service-and-storage"})
+    String timers;
+
+    FilmService filmService;
+    SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        FilmStorage filmStorage = new InMemoryFilmStorage();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        if ("service-and-storage".equals(timers)) {
+            filmStorage = proxy(filmStorage, new StorageTimingAspect(meterRegistry));
+        }
+        filmService = new FilmService(filmStorage);
+        if (!"none".equals(timers)) {
+            filmService = proxy(filmService, new HotPathTimingAspect(meterRegistry));
+        }
+        random = new SplittableRandom(42);
+        for (int i = 0; i < FILMS; i++) {
+            filmService.createFilm(new Film(0, "Film" + i, "Description", LocalDate.of(2000, 1, 1), 100));
+        }
+    }
+
+    @Benchmark
+    public Film getFilmById() {
+        return filmService.getFilmById(1 + random.nextInt(FILMS));
+    }
+
+    @Benchmark
+    public void addAndDeleteLike() {
+        int filmId = 1 + random.nextInt(FILMS);
+        int userId = random.nextInt(100_000);
+        filmService.addLike(filmId, userId);
+        filmService.deleteLike(filmId, userId);
+    }
+
+    @Benchmark
+    public List<Film> popularTop10() {
+        return filmService.getPopularFilms(10);
+    }
+
+    private static <T> T proxy(T target, Object aspect) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(aspect);
+        return factory.getProxy();
+    }
+}
@@ -0,0 +1,119 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Closed-loop HTTP load generator for comparing request execution modes,
+ * e.g. the Tomcat worker pool against {@code filmorate.server.virtual-threads}.
+ * Each of the {@code concurrency} clients sends its next request as soon as the previous response arrives;
+ * throughput and latency percentiles are reported for the period after the warm-up.
+ * <p>
+ * Start the application in the mode under test, then run {@code mvn test-compile exec:java
+ * -Dexec.classpathScope=test -Dexec.mainClass=ru.yandex.practicum.filmorate.benchmark.HttpLoadTest
+ * -Dexec.args="<url> [concurrency] [seconds] [warm-up seconds]"}.
+ */
+public class HttpLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: HttpLoadTest <url> [concurrency=100] [seconds=30] [warm-up seconds=5]");
+            System.exit(1);
+        }
+        URI uri = URI.create(args[0]);
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        long seconds = args.length > 2 ? Long.parseLong(args[2]) : 30;
+        long warmUpSeconds = args.length > 3 ? Long.parseLong(args[3]) : 5;
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(warmUpSeconds);
+        long measureTo = measureFrom + TimeUnit.SECONDS.toNanos(seconds);
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        List<Future<Client>> clients = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            clients.add(executor.submit(() -> new Client().run(client, request, measureFrom, measureTo)));
+        }
+        Client total = new Client();
+        for (Future<Client> result : clients) {
+            total.merge(result.get());
+        }
+        executor.shutdown();
+
+        long[] latencies = Arrays.copyOf(total.latencies, total.count);
+        Arrays.sort(latencies);
+        System.out.printf("%s, %d clients, %d s%n", uri, concurrency, seconds);
+        System.out.printf("requests: %d, errors: %d, throughput: %.1f req/s%n",
+                latencies.length, total.errors, latencies.length / (double) seconds);
+        System.out.printf("latency ms: p50 %.2f, p90 %.2f, p99 %.2f, p99.9 %.2f, max %.2f%n",
+                percentile(latencies, 0.5), percentile(latencies, 0.9), percentile(latencies, 0.99),
+                percentile(latencies, 0.999), percentile(latencies, 1.0));
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1_000_000.0;
+    }
+
+    /**
+     * Latencies in nanoseconds of the requests completed inside the measured period.
+     */
+    private static class Client {
+        private long[] latencies = new long[1024];
+        private int count;
+        private long errors;
+
+        Client run(HttpClient client, HttpRequest request, long measureFrom, long measureTo) {
+            long now = System.nanoTime();
+            while (now < measureTo) {
+                long sent = now;
+                boolean failed;
+                try {
+                    HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                    failed = response.statusCode() >= 400;
+                } catch (Exception e) {
+                    failed = true;
+                }
+                now = System.nanoTime();
+                if (sent >= measureFrom && now <= measureTo) {
+                    if (failed) {
+                        errors++;
+                    } else {
+                        record(now - sent);
+                    }
+                }
+            }
+            return this;
+        }
+
+        private void record(long latency) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latency;
+        }
+
+        void merge(Client other) {
+            for (int i = 0; i < other.count; i++) {
+                record(other.latencies[i]);
+            }
+            errors += other.errors;
+        }
+    }
+}
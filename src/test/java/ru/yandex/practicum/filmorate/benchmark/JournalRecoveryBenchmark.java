@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.journal.FsyncPolicy;
+import ru.yandex.practicum.filmorate.storage.journal.JournalingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.journal.StorageJournal;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Measures how long it takes to recover 10M likes from the write-ahead log alone and from a snapshot.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=ru.yandex.practicum.filmorate.benchmark.JournalRecoveryBenchmark}.
+ */
+public class JournalRecoveryBenchmark {
+    private static final int FILMS = 10_000;
+    private static final int LIKES_PER_FILM = 1_000;
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Files.createTempDirectory("journal-benchmark");
+        try {
+            StorageJournal journal = open(directory, new InMemoryFilmStorage());
+            JournalingFilmStorage filmStorage = new JournalingFilmStorage(new InMemoryFilmStorage(), journal);
+            long startedAt = System.nanoTime();
+            for (int i = 0; i < FILMS; i++) {
+                filmStorage.create(new Film(0, "Film" + i, "Description", LocalDate.of(2020, 10, 25), 120));
+            }
+            for (int user = 0; user < LIKES_PER_FILM; user++) {
+                for (int film = 1; film <= FILMS; film++) {
+                    filmStorage.addLike(film, user);
+                }
+            }
+            report("logged " + (long) FILMS * LIKES_PER_FILM + " likes one record each", startedAt);
+
+            startedAt = System.nanoTime();
+            journal = open(directory, new InMemoryFilmStorage());
+            report("recovered from the log", startedAt);
+
+            startedAt = System.nanoTime();
+            journal.snapshot();
+            report("wrote a snapshot", startedAt);
+
+            startedAt = System.nanoTime();
+            open(directory, new InMemoryFilmStorage());
+            report("recovered from the snapshot", startedAt);
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+        }
+    }
+
+    private static StorageJournal open(Path directory, InMemoryFilmStorage filmStorage) throws IOException {
+        StorageJournal journal = new StorageJournal(directory, filmStorage, new InMemoryUserStorage(),
+                FsyncPolicy.NEVER, Duration.ofDays(1), Long.MAX_VALUE, false);
+        journal.recover();
+        return journal;
+    }
+
+    private static void report(String step, long startedAt) {
+        System.out.printf("%s: %d ms%n", step, Duration.ofNanos(System.nanoTime() - startedAt).toMillis());
+    }
+}
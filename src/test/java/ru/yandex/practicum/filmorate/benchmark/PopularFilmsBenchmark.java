@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+import ru.yandex.practicum.filmorate.controller.FilmController;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Requests per second of {@code GET /films/popular} by three readers while one writer keeps liking films,
+ * on 100k films of which the first 1000 have 1000 likes each and the others 10.
+ * {@code serializedPerRequest} ranks and writes the films with Jackson on every request, as before bodies were cached;
+ * {@code cached} goes through the controller, which serves the body cached for the current top, in the full view.
+ * The writer likes either films that stay out of the top or films in it, which invalidates the body on every like.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PopularFilmsBenchmark {
+    private static final int FILMS = 100_000;
+    private static final int POPULAR_FILMS = 1_000;
+    private static final int USERS = 1_000_000;
+
+    @Param({"10", "100"})
+    int count;
+
+    @Param({"tail", "top"})
+    String likedFilms;
+
+    FilmService filmService;
+    FilmController filmController;
+    ObjectMapper objectMapper;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        filmService = new FilmService(new InMemoryFilmStorage());
+        objectMapper = new ObjectMapper()
+                .findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        filmController = new FilmController(filmService, objectMapper);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < FILMS; i++) {
+            Film film = new Film(0, "Film" + i, "Description", LocalDate.of(2000, 1, 1), 100);
+            for (int like = i < POPULAR_FILMS ? 1_000 : 10; like > 0; like--) {
+                film.addLike(random.nextInt(USERS));
+            }
+            filmService.createFilm(film);
+        }
+    }
+
+    @Benchmark
+    @Group("serializedPerRequest")
+    @GroupThreads(3)
+    public byte[] serializedPerRequest() throws Exception {
+        return objectMapper.writeValueAsBytes(filmService.getPopularFilms(count));
+    }
+
+    @Benchmark
+    @Group("serializedPerRequest")
+    @GroupThreads(1)
+    public void serializedPerRequestLikes() {
+        like();
+    }
+
+    @Benchmark
+    @Group("cached")
+    @GroupThreads(3)
+    public Object cached() {
+        return filmController.findMostPopularFilms(count, null, "full",
+                new ServletWebRequest(new MockHttpServletRequest("GET", "/films/popular")));
+    }
+
+    @Benchmark
+    @Group("cached")
+    @GroupThreads(1)
+    public void cachedLikes() {
+        like();
+    }
+
+    private void like() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int filmId = "top".equals(likedFilms)
+                ? 1 + random.nextInt(count)
+                : 1 + POPULAR_FILMS + random.nextInt(FILMS - POPULAR_FILMS);
+        filmController.addLike(filmId, random.nextInt(USERS));
+    }
+}
@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jol.info.GraphLayout;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmRanking;
+import ru.yandex.practicum.filmorate.storage.film.HeavyHittersRanking;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the exact popularity ranking with the approximate one on a skewed workload of 5M likes of 100k films:
+ * recall of the approximate top-N against the exact one, bytes retained by each ranking on top of the films,
+ * and throughput of likes and of top-10 queries.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=ru.yandex.practicum.filmorate.benchmark.PopularityAccuracyBenchmark -Djol.magicFieldOffset=true};
+ * the last flag lets JOL walk the comparator lambdas of the rankings on JDK 15 and later.
+ */
+public class PopularityAccuracyBenchmark {
+    private static final int FILMS = 100_000;
+    private static final int USERS = 1_000_000;
+    private static final int LIKES = 5_000_000;
+    private static final int QUERIES = 100_000;
+
+    public static void main(String[] args) {
+        InMemoryFilmStorage exact = run("exact", new FilmPopularityIndex());
+        InMemoryFilmStorage approximate = run("approximate", new HeavyHittersRanking(0.0001, 0.001, 1_000));
+        for (int count : new int[]{10, 100, 1_000}) {
+            Set<Integer> expected = ids(exact.findPopularFilms(count));
+            Set<Integer> found = ids(approximate.findPopularFilms(count));
+            found.retainAll(expected);
+            System.out.printf("recall@%-5d %.3f%n", count, (double) found.size() / expected.size());
+        }
+    }
+
+    private static InMemoryFilmStorage run(String name, FilmRanking ranking) {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage(ranking);
+        for (int i = 0; i < FILMS; i++) {
+            filmStorage.create(new Film(0, "Film" + i, "Description", LocalDate.of(2020, 10, 25), 120));
+        }
+        Random random = new Random(42);
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < LIKES; i++) {
+            int filmId = (int) Math.pow(FILMS, random.nextDouble()); // skewed towards first films
+            if (random.nextInt(10) == 0) {
+                filmStorage.deleteLike(filmId, random.nextInt(USERS));
+            } else {
+                filmStorage.addLike(filmId, random.nextInt(USERS));
+            }
+        }
+        double likesPerSecond = LIKES / ((System.nanoTime() - startedAt) / 1e9);
+        startedAt = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            filmStorage.findPopularFilms(10);
+        }
+        double queriesPerSecond = QUERIES / ((System.nanoTime() - startedAt) / 1e9);
+        long rankingBytes = GraphLayout.parseInstance(ranking)
+                .subtract(GraphLayout.parseInstance(filmStorage.findAll().toArray()))
+                .totalSize();
+        System.out.printf("%-12s %10.0f likes/s %10.0f top-10 queries/s %8.1f MB ranking%n",
+                name, likesPerSecond, queriesPerSecond, rankingBytes / 1e6);
+        return filmStorage;
+    }
+
+    private static Set<Integer> ids(List<Film> films) {
+        return films.stream().map(Film::getId).collect(Collectors.toCollection(HashSet::new));
+    }
+}
@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of answering {@code GET /films}: reading the catalogue and writing it with Jackson,
+ * configured the way Spring Boot configures its object mapper.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+    @Param({"1000", "10000"})
+    int catalogSize;
+
+    @Param({"10", "1000"})
+    int likesPerFilm;
+
+    FilmService filmService;
+    ObjectMapper objectMapper;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        filmService = new FilmService(new InMemoryFilmStorage());
+        objectMapper = new ObjectMapper()
+                .findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < catalogSize; i++) {
+            Film film = filmService.createFilm(new Film(0, "Film" + i, "Description", LocalDate.of(2000, 1, 1), 100));
+            for (int like = 0; like < likesPerFilm; like++) {
+                film.addLike(random.nextInt(1_000_000));
+            }
+        }
+    }
+
+    @Benchmark
+    public byte[] findAllFilms() throws Exception {
+        return objectMapper.writeValueAsBytes(filmService.findAllFilms());
+    }
+}
@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jol.info.GraphLayout;
+import ru.yandex.practicum.filmorate.util.IntSet;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Reports retained bytes per like and per friendship edge for the boxed {@link HashSet}
+ * representation used before and for {@link IntSet}.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=ru.yandex.practicum.filmorate.benchmark.SocialSetMemoryBenchmark}.
+ */
+public class SocialSetMemoryBenchmark {
+    private static final int FILMS = 1_000;
+    private static final int LIKES_PER_FILM = 1_000;
+    private static final int USERS = 10_000;
+    private static final int FRIENDS_PER_USER = 50;
+
+    public static void main(String[] args) {
+        report("HashSet<Integer>", HashSet::new);
+        report("IntSet", IntSet::new);
+    }
+
+    private static void report(String name, Supplier<Set<Integer>> factory) {
+        Random random = new Random(42);
+        List<Set<Integer>> likes = new ArrayList<>(FILMS);
+        long likeCount = 0;
+        for (int film = 0; film < FILMS; film++) {
+            Set<Integer> filmLikes = factory.get();
+            while (filmLikes.size() < LIKES_PER_FILM) {
+                filmLikes.add(random.nextInt(1_000_000));
+            }
+            likes.add(filmLikes);
+            likeCount += filmLikes.size();
+        }
+
+        List<Set<Integer>> friends = new ArrayList<>(USERS);
+        for (int user = 0; user < USERS; user++) {
+            friends.add(factory.get());
+        }
+        long edgeCount = 0;
+        for (int user = 0; user < USERS; user++) {
+            while (friends.get(user).size() < FRIENDS_PER_USER) {
+                int friend = random.nextInt(USERS);
+                if (friend != user && friends.get(user).add(friend)) {
+                    friends.get(friend).add(user);
+                    edgeCount++;
+                }
+            }
+        }
+
+        long likeBytes = GraphLayout.parseInstance(likes.toArray()).totalSize();
+        long friendBytes = GraphLayout.parseInstance(friends.toArray()).totalSize();
+        System.out.printf("%-18s %8.1f bytes per like, %8.1f bytes per friendship edge%n",
+                name, (double) likeBytes / likeCount, (double) friendBytes / edgeCount);
+    }
+}
@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * User hot paths. Common friends are measured for two users with the given friend counts,
+ * e.g. {@code 10:10000} is a light user compared with a heavy one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserServiceBenchmark {
+    private static final int USERS = 20_000;
+
+    @Param({"10:10", "1000:1000", "10:10000", "10000:10000"})
+    String degrees;
+
+    UserService userService;
+    SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        userService = new UserService(new InMemoryUserStorage());
+        random = new SplittableRandom(42);
+        for (int i = 0; i < USERS; i++) {
+            userService.createUser(newUser(i));
+        }
+        String[] parts = degrees.split(":");
+        addRandomFriends(1, Integer.parseInt(parts[0]));
+        addRandomFriends(2, Integer.parseInt(parts[1]));
+    }
+
+    @Benchmark
+    public void createAndDeleteUser() {
+        userService.deleteUser(userService.createUser(newUser(0)));
+    }
+
+    @Benchmark
+    public void addAndDeleteFriend() {
+        int userId = 3 + random.nextInt(USERS - 2);
+        int friendId = 3 + random.nextInt(USERS - 2);
+        userService.addNewFriend(userId, friendId);
+        userService.deleteFriend(userId, friendId);
+    }
+
+    @Benchmark
+    public List<User> commonFriends() {
+        return userService.getCommonFriendsList(1, 2);
+    }
+
+    @Benchmark
+    public List<User> friendsList() {
+        return userService.getUserFriendsList(2);
+    }
+
+    private void addRandomFriends(int userId, int count) {
+        while (userService.getUserById(userId).getFriends().size() < count) {
+            userService.addNewFriend(userId, 3 + random.nextInt(USERS - 2));
+        }
+    }
+
+    private static User newUser(int i) {
+        return new User(0, "user" + i + "@mail.ru", "user" + i, "User", LocalDate.of(1990, 1, 1));
+    }
+}
@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VirtualThreadsConfigurationTest {
+
+    @Test
+    void executorShouldRunTasksOnVirtualThreadsOrFailBeforeJava21() throws Exception {
+        if (Runtime.version().feature() < 21) {
+            assertThrows(IllegalStateException.class, VirtualThreadsConfiguration::newVirtualThreadPerTaskExecutor);
+            return;
+        }
+        ExecutorService executor = VirtualThreadsConfiguration.newVirtualThreadPerTaskExecutor();
+        try {
+            Thread thread = executor.submit(Thread::currentThread).get();
+            assertTrue((Boolean) Thread.class.getMethod("isVirtual").invoke(thread));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import ru.yandex.practicum.filmorate.storage.TestDatabases;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+/**
+ * Runs every {@link FilmControllerTest} against {@link FilmDbStorage}.
+ * A batch size of 2 makes the tests see both flushed and still buffered likes.
+ */
+class FilmControllerDbTest extends FilmControllerTest {
+    EmbeddedDatabase database;
+
+    @Override
+    FilmStorage createStorage() {
+        database = TestDatabases.create();
+        return new FilmDbStorage(new JdbcTemplate(database), 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+}
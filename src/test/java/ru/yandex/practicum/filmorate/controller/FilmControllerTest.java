@@ -1,42 +1,94 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
 import ru.yandex.practicum.filmorate.exception.BadRequestException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
+import ru.yandex.practicum.filmorate.model.Like;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class FilmControllerTest {
-    FilmController filmController = new FilmController(new FilmService(new InMemoryFilmStorage()));
+    ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    FilmService filmService;
+    FilmController filmController;
+
+    @BeforeEach
+    void setUp() {
+        filmService = new FilmService(createStorage());
+        filmController = new FilmController(filmService, objectMapper);
+    }
+
+    FilmStorage createStorage() {
+        return new InMemoryFilmStorage();
+    }
 
     @Test
     void findAllShouldReturnEmptyMapIfNothingAdded() {
-        assertEquals(0, filmController.findAll().size());
+        assertEquals(0, filmController.findAll(null, null, null, null, "full").size());
+    }
+
+    @Test
+    void findPageShouldReturnFilmsAfterCursor() {
+        for (int i = 1; i <= 5; i++) {
+            filmController.create(new Film(i, "Film" + i, "Comedy", LocalDate.of(2020, 10, 25), 120));
+        }
+        assertEquals(List.of(1, 2), ids(filmController.findPage(0, 2, "full")));
+        assertEquals(List.of(3, 4), ids(filmController.findPage(2, 2, "full")));
+        assertEquals(List.of(5), ids(filmController.findPage(4, 2, "full")));
+        assertThrows(BadRequestException.class, () -> filmController.findPage(0, 0, "full"));
+    }
+
+    @Test
+    void streamAllShouldWriteOneFilmPerLine() throws Exception {
+        filmController.create(new Film(1, "Film1", "Comedy", LocalDate.of(2020, 10, 25), 120));
+        filmController.create(new Film(2, "Film2", "Horror", LocalDate.of(2020, 10, 25), 100));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        filmController.streamAll("full").writeTo(outputStream);
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":1,\"name\":\"Film1\""));
+        assertTrue(lines[1].startsWith("{\"id\":2,\"name\":\"Film2\""));
     }
 
     @Test
     void findFilmByIdHappyPath() {
         Film film1 = new Film(1, "Film1", "Comedy", LocalDate.of(2020, 10, 25), 120);
         filmController.create(film1);
-        assertEquals(1, filmController.findFilmById(1).getId());
+        assertEquals(1, findFilm(1).getId());
     }
 
     @Test
     void findFilmByIdShouldThrowExceptionIfFilmIdDoesNotExist() {
-        assertThrows(NotFoundException.class, () -> filmController.findFilmById(9999));
+        assertThrows(NotFoundException.class, () -> findFilm(9999));
     }
 
     @Test
     void createHappyPath() {
         Film film1 = new Film(1, "Film1", "Comedy", LocalDate.of(2020, 10, 25), 120);
         assertEquals(film1, filmController.create(film1));
-        assertEquals(1, filmController.findAll().size());
+        assertEquals(1, filmController.findAll(null, null, null, null, "full").size());
     }
 
     @Test
@@ -90,7 +142,7 @@ class FilmControllerTest {
         Film film1 = new Film(1, "Film1", "Comedy", LocalDate.of(2020, 10, 25), 120);
         filmController.create(film1);
         filmController.addLike(1, 5);
-        assertEquals(1, film1.getLikes().size());
+        assertEquals(1, findFilm(1).getLikes().size());
     }
 
     @Test
@@ -99,11 +151,11 @@ class FilmControllerTest {
         filmController.create(film1);
         filmController.addLike(1, 5);
         filmController.deleteLike(1, 5);
-        assertEquals(0, film1.getLikes().size());
+        assertEquals(0, findFilm(1).getLikes().size());
     }
 
     @Test
-    void getPopularFilms() {
+    void getPopularFilms() throws Exception {
         Film film1 = new Film(1, "Film1", "Comedy", LocalDate.of(2020, 10, 25), 120);
         filmController.create(film1);
         filmController.addLike(1, 5);
@@ -112,6 +164,232 @@ class FilmControllerTest {
         filmController.addLike(2, 1);
         filmController.addLike(2, 3);
         filmController.addLike(2, 5);
-        assertEquals(List.of(film2, film1), filmController.findMostPopularFilms(2));
+        assertEquals(List.of(findFilm(2), findFilm(1)),
+                findMostPopularFilms(2));
+    }
+
+    @Test
+    void getTrendingFilmsShouldCountLikesWithinWindow() {
+        filmController.create(new Film(1, "Film1", "Comedy", LocalDate.of(2020, 10, 25), 120));
+        filmController.create(new Film(2, "Film2", "Horror", LocalDate.of(2020, 10, 25), 100));
+        filmController.create(new Film(3, "Film3", "Drama", LocalDate.of(2020, 10, 25), 90));
+        filmController.addLike(1, 5);
+        filmController.addLike(2, 1);
+        filmController.addLike(2, 3);
+        filmController.addLike(2, 3);
+        filmController.addLike(3, 1);
+        filmController.deleteLike(3, 1);
+        assertEquals(List.of(2, 1), ids(findTrendingFilms(10, "24h")));
+        assertThrows(BadRequestException.class, () -> findTrendingFilms(10, "2 days"));
+        assertThrows(BadRequestException.class, () -> findTrendingFilms(10, "5h"));
+    }
+
+    @Test
+    void likesFilmIsCreatedWithShouldNotCountAsTrending() {
+        Film film1 = new Film(0, "Film1", "Comedy", LocalDate.of(2020, 10, 25), 120);
+        film1.addLike(5);
+        film1.addLike(6);
+        filmController.create(film1);
+        filmController.create(new Film(0, "Film2", "Horror", LocalDate.of(2020, 10, 25), 100));
+        filmController.addLike(2, 5);
+        assertEquals(List.of(2), ids(findTrendingFilms(10, "24h")));
+        assertEquals(List.of(1, 2), filmService.getLikedFilms(5).stream()
+                .map(Film::getId)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void addLikesShouldApplyValidItemsAndReportFailures() {
+        filmController.create(new Film(1, "Film1", "Comedy", LocalDate.of(2020, 10, 25), 120));
+        filmController.create(new Film(2, "Film2", "Horror", LocalDate.of(2020, 10, 25), 100));
+        BatchResult result = filmController.addLikes(Arrays.asList(
+                new Like(1, 5), new Like(9999, 5), new Like(2, -1), null, new Like(1, 6), new Like(2, 7)));
+        assertEquals(3, result.getApplied());
+        assertEquals(List.of(1, 2, 3),
+                result.getFailures().stream().map(BatchResult.Failure::getIndex).collect(Collectors.toList()));
+        assertEquals(Set.of(5, 6), findFilm(1).getLikes());
+        assertEquals(Set.of(7), findFilm(2).getLikes());
+    }
+
+    @Test
+    void deleteLikesShouldRemoveLikesOfSeveralFilms() {
+        filmController.create(new Film(1, "Film1", "Comedy", LocalDate.of(2020, 10, 25), 120));
+        filmController.create(new Film(2, "Film2", "Horror", LocalDate.of(2020, 10, 25), 100));
+        filmController.addLikes(List.of(new Like(1, 5), new Like(1, 6), new Like(2, 5)));
+        BatchResult result = filmController.deleteLikes(List.of(new Like(1, 5), new Like(2, 5)));
+        assertEquals(2, result.getApplied());
+        assertTrue(result.getFailures().isEmpty());
+        assertEquals(Set.of(6), findFilm(1).getLikes());
+        assertEquals(Set.of(), findFilm(2).getLikes());
+    }
+
+    @Test
+    void findAllShouldFilterByReleaseDateAndDuration() {
+        filmController.create(new Film(0, "Film1", "Comedy", LocalDate.of(2001, 1, 1), 90));
+        filmController.create(new Film(0, "Film2", "Horror", LocalDate.of(1999, 6, 1), 120));
+        filmController.create(new Film(0, "Film3", "Drama", LocalDate.of(2005, 3, 1), 150));
+        filmController.create(new Film(0, "Film4", "Comedy", LocalDate.of(2001, 1, 1), 100));
+        assertEquals(List.of(1, 4, 3), filteredIds("2000-01-01", null, null, null));
+        assertEquals(List.of(2, 1, 4), filteredIds(null, "2001-01-01", null, null));
+        assertEquals(List.of(4, 2), filteredIds(null, null, 100, 120));
+        assertEquals(List.of(1), filteredIds("2000-01-01", "2004-12-31", null, 95));
+        assertEquals(4, filmController.findAll(null, null, null, null, "full").size());
+
+        filmController.update(new Film(1, "Film1", "Comedy", LocalDate.of(2010, 1, 1), 90));
+        filmController.update(new Film(4, "Film4", "Comedy", LocalDate.of(2001, 1, 1), 200));
+        assertEquals(List.of(4, 3, 1), filteredIds("2000-01-01", null, null, null));
+        assertEquals(List.of(2), filteredIds(null, null, 100, 120));
+
+        assertThrows(BadRequestException.class, () -> filmController.findAll("2000-13-01", null, null, null, "full"));
+        assertThrows(BadRequestException.class, () -> filmController.findAll("2001-01-01", "2000-01-01", null, null, "full"));
+        assertThrows(BadRequestException.class, () -> filmController.findAll(null, null, 100, 90, "full"));
+    }
+
+    private List<Integer> filteredIds(String releasedFrom, String releasedTo, Integer minDuration, Integer maxDuration) {
+        return ids(filmController.findAll(releasedFrom, releasedTo, minDuration, maxDuration, "full"));
+    }
+
+    @Test
+    void searchShouldMatchEveryWordAndRankByRelevanceAndLikes() {
+        filmController.create(new Film(0, "The Matrix", "A hacker learns the truth", LocalDate.of(1999, 3, 31), 136));
+        filmController.create(new Film(0, "Matrix Reloaded", "Sequel", LocalDate.of(2003, 5, 15), 138));
+        filmController.create(new Film(0, "The Godfather", "Mafia family saga", LocalDate.of(1972, 3, 24), 175));
+        filmController.create(new Film(0, "Godzilla", "A monster attacks", LocalDate.of(1954, 11, 3), 96));
+        assertEquals(List.of(1, 2), searchIds("matr"));
+        assertEquals(List.of(1), searchIds("the MATRIX"));
+        assertEquals(List.of(3), searchIds("mafia"));
+        assertEquals(List.of(3, 4), searchIds("god"));
+        assertEquals(List.of(), searchIds("matrix godfather"));
+
+        filmController.addLike(2, 1);
+        assertEquals(List.of(2, 1), searchIds("matrix"));
+        assertEquals(List.of(1), searchIds("hacker matrix"));
+        filmController.update(new Film(4, "King Kong", "A monster attacks", LocalDate.of(1933, 3, 2), 100));
+        assertEquals(List.of(3), searchIds("god"));
+        assertEquals(List.of(4), searchIds("kong"));
+
+        assertThrows(BadRequestException.class, () -> filmController.search(" ", 10, "full"));
+        assertThrows(BadRequestException.class, () -> filmController.search("matrix", 0, "full"));
+    }
+
+    private List<Integer> searchIds(String query) {
+        return ids(filmController.search(query, 10, "full"));
+    }
+
+    @Test
+    void findFilmByIdShouldAnswerNotModifiedUntilFilmChanges() {
+        filmController.create(new Film(0, "Film1", "Comedy", LocalDate.of(2020, 10, 25), 120));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertNotNull(filmController.findFilmById(1, null, request(null, response)));
+        String etag = response.getHeader("ETag");
+        assertNotNull(etag);
+
+        MockHttpServletResponse notModified = new MockHttpServletResponse();
+        assertNull(filmController.findFilmById(1, null, request(etag, notModified)));
+        assertEquals(304, notModified.getStatus());
+
+        filmController.addLike(1, 1);
+        Film changed = (Film) filmController.findFilmById(1, null, request(etag, new MockHttpServletResponse()));
+        assertEquals(Set.of(1), changed.getLikes());
+    }
+
+    @Test
+    void findMostPopularFilmsShouldServeCachedBodyUntilLikesChange() {
+        filmController.create(new Film(0, "Film1", "Comedy", LocalDate.of(2020, 10, 25), 120));
+        filmController.create(new Film(0, "Film2", "Horror", LocalDate.of(2020, 10, 25), 100));
+        ResponseEntity<?> first = filmController.findMostPopularFilms(10, null, null, request(null, new MockHttpServletResponse()));
+        String etag = first.getHeaders().getETag();
+        assertTrue(new String((byte[]) first.getBody(), StandardCharsets.UTF_8).startsWith("[{\"id\":1,"));
+        assertSame(first.getBody(),
+                filmController.findMostPopularFilms(10, null, null, request(null, new MockHttpServletResponse())).getBody());
+
+        MockHttpServletResponse notModified = new MockHttpServletResponse();
+        assertNull(filmController.findMostPopularFilms(10, null, null, request(etag, notModified)));
+        assertEquals(304, notModified.getStatus());
+        assertNotEquals(etag, filmController.findMostPopularFilms(1, null, null, request(null, new MockHttpServletResponse()))
+                .getHeaders().getETag());
+
+        filmController.addLike(2, 1);
+        ResponseEntity<?> changed = filmController.findMostPopularFilms(10, null, null, request(etag, new MockHttpServletResponse()));
+        assertNotEquals(etag, changed.getHeaders().getETag());
+        assertTrue(new String((byte[]) changed.getBody(), StandardCharsets.UTF_8).startsWith("[{\"id\":2,"));
+    }
+
+    @Test
+    void findMostPopularFilmsShouldKeepBodyWhileTopFilmsStayTheSame() {
+        for (int i = 1; i <= 3; i++) {
+            filmController.create(new Film(0, "Film" + i, "Comedy", LocalDate.of(2020, 10, 25), 120));
+        }
+        filmController.addLike(1, 1);
+        filmController.addLike(1, 2);
+        ResponseEntity<?> first = filmController.findMostPopularFilms(1, null, null, request(null, new MockHttpServletResponse()));
+        String etag = first.getHeaders().getETag();
+
+        filmController.addLike(3, 1); // stays out of the top
+        MockHttpServletResponse notModified = new MockHttpServletResponse();
+        assertNull(filmController.findMostPopularFilms(1, null, null, request(etag, notModified)));
+        assertEquals(304, notModified.getStatus());
+        assertSame(first.getBody(),
+                filmController.findMostPopularFilms(1, null, null, request(null, new MockHttpServletResponse())).getBody());
+
+        filmController.addLike(3, 2);
+        filmController.addLike(3, 3); // overtakes the first film
+        ResponseEntity<?> changed = filmController.findMostPopularFilms(1, null, null, request(etag, new MockHttpServletResponse()));
+        assertNotEquals(etag, changed.getHeaders().getETag());
+        assertTrue(new String((byte[]) changed.getBody(), StandardCharsets.UTF_8).startsWith("[{\"id\":3,"));
+    }
+
+    @Test
+    void listsShouldSummarizeFilmsUnlessFullViewIsRequested() {
+        filmController.create(new Film(0, "Film1", "Comedy", LocalDate.of(2020, 10, 25), 120));
+        filmController.addLike(1, 1);
+        filmController.addLike(1, 2);
+        assertEquals(List.of(new FilmSummary(1, "Film1", "Comedy", LocalDate.of(2020, 10, 25), 120, 2)),
+                filmController.findAll(null, null, null, null, null));
+        assertEquals(Set.of(1, 2), ((Film) filmController.findAll(null, null, null, null, "full").get(0)).getLikes());
+        assertEquals(2, ((FilmSummary) filmController.findFilmById(1, "summary", request(null,
+                new MockHttpServletResponse()))).getLikeCount());
+        assertThrows(BadRequestException.class, () -> filmController.findPage(0, 10, "compact"));
+    }
+
+    @Test
+    void findLikesShouldPageUserIdsInAscendingOrder() {
+        filmController.create(new Film(0, "Film1", "Comedy", LocalDate.of(2020, 10, 25), 120));
+        for (int userId : new int[]{5, 3, 9, 1}) {
+            filmController.addLike(1, userId);
+        }
+        assertArrayEquals(new int[]{1, 3}, filmController.findLikes(1, 0, 2));
+        assertArrayEquals(new int[]{5, 9}, filmController.findLikes(1, 3, 2));
+        assertArrayEquals(new int[0], filmController.findLikes(1, 9, 2));
+        assertThrows(BadRequestException.class, () -> filmController.findLikes(1, 0, 0));
+        assertThrows(NotFoundException.class, () -> filmController.findLikes(2, 0, 10));
+    }
+
+    private Film findFilm(int filmId) {
+        return (Film) filmController.findFilmById(filmId, "full", request(null, new MockHttpServletResponse()));
+    }
+
+    private List<Film> findMostPopularFilms(int count) throws IOException {
+        byte[] body = (byte[]) filmController.findMostPopularFilms(count, null, "full",
+                request(null, new MockHttpServletResponse())).getBody();
+        return objectMapper.readValue(body, new TypeReference<List<Film>>() {
+        });
+    }
+
+    private List<?> findTrendingFilms(int count, String window) {
+        return (List<?>) filmController.findMostPopularFilms(count, window, "full",
+                request(null, new MockHttpServletResponse())).getBody();
+    }
+
+    private static List<Integer> ids(List<?> films) {
+        return films.stream().map(film -> ((Film) film).getId()).collect(Collectors.toList());
+    }
+
+    private static ServletWebRequest request(String ifNoneMatch, MockHttpServletResponse response) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/films");
+        if (ifNoneMatch != null) {
+            request.addHeader("If-None-Match", ifNoneMatch);
+        }
+        return new ServletWebRequest(request, response);
     }
-}
\ No newline at end of file
+}
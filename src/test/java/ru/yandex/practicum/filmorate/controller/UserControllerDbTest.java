@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import ru.yandex.practicum.filmorate.storage.TestDatabases;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+/**
+ * Runs every {@link UserControllerTest} against {@link UserDbStorage}.
+ * A batch size of 2 makes the tests see both flushed and still buffered friendships.
+ */
+class UserControllerDbTest extends UserControllerTest {
+    EmbeddedDatabase database;
+
+    @Override
+    UserStorage createStorage() {
+        database = TestDatabases.create();
+        return new UserDbStorage(new JdbcTemplate(database), 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+}
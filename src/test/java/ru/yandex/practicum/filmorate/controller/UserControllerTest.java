@@ -1,25 +1,67 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
 import ru.yandex.practicum.filmorate.exception.BadRequestException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.UserService;
 import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class UserControllerTest {
-    UserController userController = new UserController(new UserService(new InMemoryUserStorage()));
+    UserService userService;
+    UserController userController;
+
+    @BeforeEach
+    void setUp() {
+        userService = new UserService(createStorage());
+        userController = new UserController(userService, new ObjectMapper().findAndRegisterModules());
+    }
+
+    UserStorage createStorage() {
+        return new InMemoryUserStorage();
+    }
 
     @Test
     void findAllShouldReturnEmptyMapIfNothingAdded() {
-        assertEquals(0, userController.findAll().size());
-        assertTrue(userController.findAll().isEmpty());
+        assertEquals(0, userController.findAll(null, null).size());
+        assertTrue(userController.findAll(null, null).isEmpty());
+    }
+
+    @Test
+    void findPageShouldReturnUsersAfterCursor() {
+        for (int i = 1; i <= 3; i++) {
+            userController.create(new User(i, "email" + i + "@gmail.com", "user" + i, "Jane", LocalDate.of(1990, 12, 10)));
+        }
+        assertEquals(List.of(2, 3), userController.findPage(1, 10).stream().map(User::getId).collect(Collectors.toList()));
+        assertThrows(BadRequestException.class, () -> userController.findPage(0, 100_000));
+    }
+
+    @Test
+    void streamAllShouldWriteOneUserPerLine() throws Exception {
+        userController.create(new User(1, "email@gmail.com", "user", "Jane", LocalDate.of(1990, 12, 10)));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        userController.streamAll().writeTo(outputStream);
+        String body = outputStream.toString(StandardCharsets.UTF_8);
+        assertTrue(body.startsWith("{\"id\":1,\"email\":\"email@gmail.com\""));
+        assertTrue(body.endsWith("\"friends\":[]}\n"));
     }
 
     @Test
@@ -39,7 +81,7 @@ class UserControllerTest {
     void createUserHappyPath() {
         User user = new User(1, "email@gmail.com", "user", "Jane", LocalDate.of(1990, 12, 10));
         assertEquals(user, userController.create(user));
-        assertEquals(1, userController.findAll().size());
+        assertEquals(1, userController.findAll(null, null).size());
     }
 
     @Test
@@ -106,7 +148,7 @@ class UserControllerTest {
 
     @Test
     void createShouldThrowExceptionIfUserBirthdayIsInTheFuture() {
-        User user = new User(1, "email@gmail.com", "user", "Jane", LocalDate.of(2023, 10, 15));
+        User user = new User(1, "email@gmail.com", "user", "Jane", LocalDate.now().plusDays(1));
         assertThrows(BadRequestException.class, () -> userController.create(user));
     }
 
@@ -123,7 +165,7 @@ class UserControllerTest {
         User user2 = new User(2, "email2@gmail.com", "user2", "Kate", LocalDate.of(1980, 12, 10));
         userController.create(user2);
         userController.addNewFriend(1, 2);
-        assertEquals(Set.of(2), user.getFriends());
+        assertEquals(Set.of(2), userController.findUser(1).getFriends());
     }
 
     @Test
@@ -134,7 +176,25 @@ class UserControllerTest {
         userController.create(user2);
         userController.addNewFriend(1, 2);
         userController.deleteFriend(1, 2);
-        assertEquals(Set.of(), user.getFriends());
+        assertEquals(Set.of(), userController.findUser(1).getFriends());
+    }
+
+    @Test
+    void updateShouldKeepFriendshipsAndDeleteShouldEndThem() {
+        for (int i = 1; i <= 3; i++) {
+            userController.create(new User(i, "email" + i + "@gmail.com", "user" + i, "Jane", LocalDate.of(1990, 12, 10)));
+        }
+        userController.addNewFriend(1, 2);
+        userController.addNewFriend(1, 3);
+        User update = new User(1, "email1@gmail.com", "user1", "Kate", LocalDate.of(1990, 12, 10));
+        update.addFriend(4);
+        userController.update(update);
+        assertEquals(Set.of(2, 3), userController.findUser(1).getFriends());
+        assertEquals(Set.of(1), userController.findUser(2).getFriends());
+
+        userService.deleteUser(userController.findUser(1));
+        assertEquals(Set.of(), userController.findUser(2).getFriends());
+        assertEquals(List.of(), userService.getUserFriendsList(3));
     }
 
     @Test
@@ -147,7 +207,22 @@ class UserControllerTest {
         userController.create(user3);
         userController.addNewFriend(1, 3);
         userController.addNewFriend(2, 3);
-        assertEquals(List.of(user3), userController.findCommonFriends(1, 2));
+        assertEquals(List.of(userController.findUser(3)), userController.findCommonFriends(1, 2));
+    }
+
+    @Test
+    void getFriendsCommonToSeveralUsers() {
+        for (int i = 1; i <= 5; i++) {
+            userController.create(new User(i, "email" + i + "@gmail.com", "user" + i, "Jane", LocalDate.of(1990, 12, 10)));
+        }
+        userController.addNewFriend(1, 4);
+        userController.addNewFriend(1, 5);
+        userController.addNewFriend(2, 4);
+        userController.addNewFriend(2, 5);
+        userController.addNewFriend(3, 5);
+        assertEquals(List.of(userController.findUser(4), userController.findUser(5)),
+                userController.findCommonFriends(1, List.of(2)));
+        assertEquals(List.of(userController.findUser(5)), userController.findCommonFriends(1, List.of(2, 3)));
     }
 
     @Test
@@ -160,6 +235,152 @@ class UserControllerTest {
         userController.create(user3);
         userController.addNewFriend(1, 2);
         userController.addNewFriend(1, 3);
-        assertEquals(List.of(user2, user3), userController.findUserFriends(1));
+        assertEquals(List.of(userController.findUser(2), userController.findUser(3)),
+                userController.findUserFriends(1, request(null, new MockHttpServletResponse())));
+    }
+
+    @Test
+    void addFriendsShouldApplyValidItemsAndReportFailures() {
+        for (int i = 1; i <= 4; i++) {
+            userController.create(new User(i, "email" + i + "@gmail.com", "user" + i, "Jane", LocalDate.of(1990, 12, 10)));
+        }
+        BatchResult result = userController.addFriends(Arrays.asList(
+                new Friendship(1, 2), new Friendship(1, 9999), new Friendship(-1, 3), new Friendship(1, 3),
+                new Friendship(4, 2)));
+        assertEquals(3, result.getApplied());
+        assertEquals(List.of(1, 2),
+                result.getFailures().stream().map(BatchResult.Failure::getIndex).collect(Collectors.toList()));
+        assertEquals(Set.of(2, 3), userController.findUser(1).getFriends());
+        assertEquals(Set.of(1, 4), userController.findUser(2).getFriends());
+    }
+
+    @Test
+    void findRecommendationsShouldRankFriendsOfFriendsByMutualFriends() {
+        for (int i = 1; i <= 6; i++) {
+            userController.create(new User(i, "email" + i + "@gmail.com", "user" + i, "Jane", LocalDate.of(1990, 12, 10)));
+        }
+        userController.addNewFriend(1, 2);
+        userController.addNewFriend(1, 3);
+        userController.addNewFriend(2, 3);
+        userController.addNewFriend(2, 4);
+        userController.addNewFriend(3, 4);
+        userController.addNewFriend(2, 5);
+        assertEquals(List.of(4, 5), recommendedIds(1, 10));
+        assertEquals(List.of(4), recommendedIds(1, 1));
+        assertThrows(BadRequestException.class, () -> userController.findRecommendations(1, 0));
+        assertThrows(BadRequestException.class, () -> userController.findRecommendations(1, 101));
+        assertThrows(NotFoundException.class, () -> userController.findRecommendations(9999, 10));
+    }
+
+    @Test
+    void findRecommendationsShouldFollowFriendshipChanges() {
+        for (int i = 1; i <= 6; i++) {
+            userController.create(new User(i, "email" + i + "@gmail.com", "user" + i, "Jane", LocalDate.of(1990, 12, 10)));
+        }
+        userController.addNewFriend(1, 2);
+        userController.addNewFriend(2, 4);
+        userController.addNewFriend(2, 5);
+        assertEquals(List.of(4, 5), recommendedIds(1, 10));
+        userController.addNewFriend(1, 4);
+        assertEquals(List.of(5), recommendedIds(1, 10));
+        userController.addNewFriend(5, 6);
+        assertEquals(List.of(5), recommendedIds(1, 10));
+        userController.addNewFriend(4, 6);
+        assertEquals(List.of(5, 6), recommendedIds(1, 10));
+        userController.deleteFriend(1, 2);
+        assertEquals(List.of(2, 6), recommendedIds(1, 10));
+    }
+
+    private List<Integer> recommendedIds(int userId, int limit) {
+        return userController.findRecommendations(userId, limit).stream().map(User::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    void findAllShouldFindUsersByEmailAndLogin() {
+        userController.create(new User(0, "jane@gmail.com", "jane", "Jane", LocalDate.of(1990, 12, 10)));
+        userController.create(new User(0, "john@gmail.com", "john", "John", LocalDate.of(1990, 12, 10)));
+        userController.create(new User(0, "other@gmail.com", "jane", "Jane", LocalDate.of(1990, 12, 10)));
+        assertEquals(List.of(2), foundIds("john@gmail.com", null));
+        assertEquals(List.of(1, 3), foundIds(null, "jane"));
+        assertEquals(List.of(3), foundIds("other@gmail.com", "jane"));
+        assertEquals(List.of(), foundIds("john@gmail.com", "jane"));
+        assertEquals(List.of(), foundIds("nobody@gmail.com", null));
+
+        userController.update(new User(2, "johnny@gmail.com", "johnny", "John", LocalDate.of(1990, 12, 10)));
+        assertEquals(List.of(), foundIds("john@gmail.com", null));
+        assertEquals(List.of(2), foundIds("johnny@gmail.com", "johnny"));
+    }
+
+    @Test
+    void createAndUpdateShouldRejectEmailOfAnotherUser() {
+        userController.create(new User(0, "jane@gmail.com", "jane", "Jane", LocalDate.of(1990, 12, 10)));
+        User john = userController.create(new User(0, "john@gmail.com", "john", "John", LocalDate.of(1990, 12, 10)));
+        assertThrows(BadRequestException.class, () -> userController.create(
+                new User(0, "jane@gmail.com", "other", "Jane", LocalDate.of(1990, 12, 10))));
+        assertThrows(BadRequestException.class, () -> userController.update(
+                new User(john.getId(), "jane@gmail.com", "john", "John", LocalDate.of(1990, 12, 10))));
+        userController.update(new User(john.getId(), "john@gmail.com", "johnny", "John", LocalDate.of(1990, 12, 10)));
+        assertEquals(2, userController.findAll(null, null).size());
+    }
+
+    @Test
+    void storageShouldRejectEmailOfAnotherUserPastTheControllerCheck() {
+        userService.createUser(new User(0, "email@gmail.com", "user", "Jane", LocalDate.of(1990, 12, 10)));
+        assertThrows(BadRequestException.class, () -> userService.createUser(
+                new User(0, "email@gmail.com", "other", "Kate", LocalDate.of(1980, 12, 10))));
+        User other = userService.createUser(new User(0, "email2@gmail.com", "other", "Kate", LocalDate.of(1980, 12, 10)));
+        assertThrows(BadRequestException.class, () -> userService.updateUser(
+                new User(other.getId(), "email@gmail.com", "other", "Kate", LocalDate.of(1980, 12, 10))));
+
+        assertEquals("user", userController.findAll("email@gmail.com", null).get(0).getLogin());
+        assertEquals(1, userController.findAll("email2@gmail.com", null).size());
+    }
+
+    private List<Integer> foundIds(String email, String login) {
+        return userController.findAll(email, login).stream().map(User::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    void findUserFriendsShouldAnswerNotModifiedUntilAnyFriendChanges() {
+        for (int i = 1; i <= 3; i++) {
+            userController.create(new User(i, "email" + i + "@gmail.com", "user" + i, "Jane", LocalDate.of(1990, 12, 10)));
+        }
+        userController.addNewFriend(1, 2);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertEquals(1, userController.findUserFriends(1, request(null, response)).size());
+        String etag = response.getHeader("ETag");
+
+        MockHttpServletResponse notModified = new MockHttpServletResponse();
+        assertNull(userController.findUserFriends(1, request(etag, notModified)));
+        assertEquals(304, notModified.getStatus());
+
+        userController.addNewFriend(2, 3); // changes the friends listed for user 2
+        MockHttpServletResponse changed = new MockHttpServletResponse();
+        assertEquals(Set.of(1, 3), userController.findUserFriends(1, request(etag, changed)).get(0).getFriends());
+        assertNotEquals(etag, changed.getHeader("ETag"));
+    }
+
+    @Test
+    void findUserFriendsShouldChangeWhenFriendIsDeleted() {
+        for (int i = 1; i <= 2; i++) {
+            userController.create(new User(i, "email" + i + "@gmail.com", "user" + i, "Jane", LocalDate.of(1990, 12, 10)));
+        }
+        userController.addNewFriend(1, 2);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertEquals(1, userController.findUserFriends(2, request(null, response)).size());
+        String etag = response.getHeader("ETag");
+
+        userService.deleteUser(userController.findUser(1));
+        MockHttpServletResponse changed = new MockHttpServletResponse();
+        assertEquals(List.of(), userController.findUserFriends(2, request(etag, changed)));
+        assertNotEquals(etag, changed.getHeader("ETag"));
+    }
+
+    private static ServletWebRequest request(String ifNoneMatch, MockHttpServletResponse response) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/users");
+        if (ifNoneMatch != null) {
+            request.addHeader("If-None-Match", ifNoneMatch);
+        }
+        return new ServletWebRequest(request, response);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,100 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.BadRequestException;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserFilmControllerTest {
+    FilmService filmService;
+    UserService userService;
+    UserFilmController userFilmController;
+
+    @BeforeEach
+    void setUp() {
+        filmService = new FilmService(new InMemoryFilmStorage());
+        userService = new UserService(new InMemoryUserStorage(), Optional.of(filmService));
+        userFilmController = new UserFilmController(filmService, userService);
+        for (int i = 1; i <= 5; i++) {
+            filmService.createFilm(new Film(0, "Film" + i, "Comedy", LocalDate.of(2020, 10, 25), 120));
+            userService.createUser(new User(0, "email" + i + "@gmail.com", "user" + i, "Jane", LocalDate.of(1990, 12, 10)));
+        }
+        like(1, 1, 2);
+        like(2, 1, 2, 3);
+        like(3, 1, 4, 5);
+        like(4, 5);
+    }
+
+    @Test
+    void findRecommendedFilmsShouldPreferFilmsOfMostSimilarUsers() {
+        assertEquals(List.of(3, 4, 5), recommendedIds(1, 10));
+        assertEquals(List.of(3), recommendedIds(1, 1));
+        assertEquals(List.of(), recommendedIds(5, 10));
+        assertThrows(BadRequestException.class, () -> userFilmController.findRecommendedFilms(1, 0, "full"));
+        assertThrows(BadRequestException.class, () -> userFilmController.findRecommendedFilms(1, 101, "full"));
+        assertThrows(NotFoundException.class, () -> userFilmController.findRecommendedFilms(9999, 10, "full"));
+    }
+
+    @Test
+    void findRecommendedFilmsShouldFollowLikesAndFilmChanges() {
+        assertEquals(List.of(3, 4, 5), recommendedIds(1, 10));
+        filmService.addLike(3, 1);
+        assertEquals(List.of(4, 5), recommendedIds(1, 10));
+        filmService.deleteFilm(filmService.getFilmById(4));
+        assertEquals(List.of(5), recommendedIds(1, 10));
+        filmService.deleteLike(3, 1);
+        assertEquals(List.of(3, 5), recommendedIds(1, 10));
+    }
+
+    @Test
+    void findLikedFilmsShouldFollowLikes() {
+        assertEquals(List.of(1, 4, 5), likedIds(3));
+        filmService.deleteLike(4, 3);
+        filmService.addLike(2, 3);
+        assertEquals(List.of(1, 2, 5), likedIds(3));
+        assertEquals(List.of(), likedIds(5));
+        assertThrows(NotFoundException.class, () -> userFilmController.findLikedFilms(9999, "full"));
+    }
+
+    @Test
+    void deleteUserShouldRemoveLikesOfUser() {
+        userService.deleteUser(userService.getUserById(3));
+        assertEquals(Set.of(1, 2), filmService.getFilmById(1).getLikes());
+        assertEquals(Set.of(), filmService.getFilmById(4).getLikes());
+        assertEquals(Set.of(4), filmService.getFilmById(5).getLikes());
+        assertEquals(List.of(), filmService.getLikedFilms(3));
+        assertEquals(List.of(3), recommendedIds(1, 10));
+    }
+
+    private List<Integer> likedIds(int userId) {
+        return userFilmController.findLikedFilms(userId, "full").stream()
+                .map(film -> ((Film) film).getId())
+                .collect(Collectors.toList());
+    }
+
+    private void like(int userId, int... filmIds) {
+        for (int filmId : filmIds) {
+            filmService.addLike(filmId, userId);
+        }
+    }
+
+    private List<Integer> recommendedIds(int userId, int limit) {
+        return userFilmController.findRecommendedFilms(userId, limit, "full").stream()
+                .map(film -> ((Film) film).getId())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeToFirstRequestMetricsTest {
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    TimeToFirstRequestMetrics metrics = new TimeToFirstRequestMetrics();
+
+    @Test
+    void firstApplicationRequestShouldBeRecordedOnce() throws Exception {
+        metrics.bindTo(meterRegistry);
+        assertTrue(Double.isNaN(timeToFirstRequest()));
+
+        metrics.doFilter(new MockHttpServletRequest("GET", "/actuator/health"), new MockHttpServletResponse(),
+                new MockFilterChain());
+        assertTrue(Double.isNaN(timeToFirstRequest()));
+
+        metrics.doFilter(new MockHttpServletRequest("GET", "/films"), new MockHttpServletResponse(),
+                new MockFilterChain());
+        double first = timeToFirstRequest();
+        assertTrue(first > 0);
+
+        Thread.sleep(20);
+        metrics.doFilter(new MockHttpServletRequest("GET", "/users"), new MockHttpServletResponse(),
+                new MockFilterChain());
+        assertEquals(first, timeToFirstRequest());
+    }
+
+    private double timeToFirstRequest() {
+        return meterRegistry.get("filmorate.startup.time-to-first-request").timeGauge().value(TimeUnit.SECONDS);
+    }
+}
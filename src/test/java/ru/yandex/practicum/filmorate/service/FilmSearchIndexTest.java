@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilmSearchIndexTest {
+    InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+    FilmSearchIndex searchIndex = new FilmSearchIndex(filmStorage);
+
+    @Test
+    void firstCreatedFilmShouldBeCountedOnceWhenItTriggersBuild() {
+        Film film = filmStorage.create(new Film(0, "Film1", "Comedy", LocalDate.of(2020, 10, 25), 120));
+        searchIndex.filmCreated(film.getId());
+
+        assertEquals(1, searchIndex.size());
+        assertEquals(List.of(film), searchIndex.search("film1", 10));
+    }
+
+    @Test
+    void filmCreatedWhileIndexIsBuiltShouldBeCountedOnce() {
+        filmStorage.create(new Film(0, "Film1", "Comedy", LocalDate.of(2020, 10, 25), 120));
+        Film film = filmStorage.create(new Film(0, "Film2", "Drama", LocalDate.of(2020, 10, 25), 120));
+        searchIndex.search("film", 10);
+        searchIndex.filmCreated(film.getId());
+
+        assertEquals(2, searchIndex.size());
+        searchIndex.filmChanged(film.getId(), () -> filmStorage.delete(film));
+        assertEquals(1, searchIndex.size());
+        assertEquals(List.of(), searchIndex.search("drama", 10));
+    }
+}
@@ -0,0 +1,95 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.ServiceUnavailableException;
+import ru.yandex.practicum.filmorate.exception.TooManyRequestsException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class LikeIngestionQueueTest {
+    FilmStorage filmStorage = spy(new InMemoryFilmStorage());
+
+    @Test
+    void queuedLikesShouldBeCoalescedPerFilm() throws Exception {
+        Film film1 = filmStorage.create(new Film(0, "Film1", "Comedy", LocalDate.of(2020, 10, 25), 120));
+        Film film2 = filmStorage.create(new Film(0, "Film2", "Horror", LocalDate.of(2020, 10, 25), 100));
+        LikeIngestionQueue queue = new LikeIngestionQueue(filmStorage, 100, Duration.ofSeconds(1), 100, false);
+        queue.addLike(film1.getId(), 1);
+        queue.addLike(film1.getId(), 2);
+        queue.deleteLike(film1.getId(), 1);
+        queue.addLike(film2.getId(), 3);
+        queue.addLike(film1.getId(), 4);
+        queue.start();
+        queue.stop();
+        verify(filmStorage, times(1)).addLikes(film1.getId(), List.of(2, 4));
+        verify(filmStorage, times(1)).deleteLikes(film1.getId(), List.of(1));
+        verify(filmStorage, times(1)).addLikes(film2.getId(), List.of(3));
+        assertEquals(Set.of(2, 4), filmStorage.findFilmById(film1.getId()).orElseThrow().getLikes());
+        assertEquals(Set.of(3), filmStorage.findFilmById(film2.getId()).orElseThrow().getLikes());
+    }
+
+    @Test
+    void fullQueueShouldRejectLikes() {
+        LikeIngestionQueue queue = new LikeIngestionQueue(filmStorage, 1, Duration.ZERO, 100, false);
+        queue.addLike(1, 1);
+        assertThrows(TooManyRequestsException.class, () -> queue.addLike(1, 2));
+    }
+
+    @Test
+    void stoppedQueueShouldRejectLikes() throws Exception {
+        LikeIngestionQueue queue = new LikeIngestionQueue(filmStorage, 100, Duration.ZERO, 100, false);
+        queue.start();
+        queue.stop();
+        assertThrows(ServiceUnavailableException.class, () -> queue.addLike(1, 1));
+    }
+
+    @Test
+    void readYourWritesShouldGiveUpIfLikeIsNotAppliedInTime() {
+        LikeIngestionQueue queue = new LikeIngestionQueue(filmStorage, new UserLikesIndex(filmStorage), 100,
+                Duration.ZERO, 100, true, Duration.ofMillis(50)); // not started, so nothing is applied
+        assertThrows(ServiceUnavailableException.class, () -> queue.addLike(1, 1));
+    }
+
+    @Test
+    void readYourWritesShouldReturnAfterLikeIsApplied() throws Exception {
+        Film film = filmStorage.create(new Film(0, "Film1", "Comedy", LocalDate.of(2020, 10, 25), 120));
+        UserLikesIndex likesIndex = new UserLikesIndex(filmStorage);
+        LikeIngestionQueue queue = new LikeIngestionQueue(filmStorage, likesIndex, 1000, Duration.ofMillis(5), 100, true,
+                Duration.ofSeconds(5));
+        queue.start();
+        FilmService filmService = new FilmService(filmStorage, likesIndex, Optional.of(queue));
+        assertTrue(likesIndex.likedFilms(0).isEmpty()); // builds the index before the likes arrive
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> seen = IntStream.range(0, 200)
+                    .mapToObj(userId -> executor.submit(() -> {
+                        filmService.addLike(film.getId(), userId);
+                        return filmService.getFilmById(film.getId()).getLikes().contains(userId);
+                    }))
+                    .collect(Collectors.toList());
+            for (Future<Boolean> future : seen) {
+                assertTrue(future.get());
+            }
+        } finally {
+            executor.shutdown();
+            queue.stop();
+        }
+        assertEquals(200, filmService.getFilmById(film.getId()).getLikes().size());
+        assertEquals(Set.of(film.getId()), likesIndex.likedFilms(199));
+    }
+}
@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrendingFilmsTest {
+    static final Duration WINDOW = Duration.ofHours(3);
+    static final Duration WEEK = Duration.ofDays(7);
+
+    MutableClock clock = new MutableClock();
+    TrendingFilms trendingFilms = new TrendingFilms(clock, Duration.ofHours(1), List.of(WEEK, WINDOW));
+
+    @Test
+    void likesShouldLeaveWindowWhenTheirBucketExpires() {
+        trendingFilms.likesChanged(1, 2);
+        clock.advance(Duration.ofHours(2));
+        trendingFilms.likesChanged(2, 1);
+        assertEquals(List.of(1, 2), trendingFilms.top(WINDOW, 10));
+        clock.advance(Duration.ofHours(1));
+        assertEquals(List.of(2), trendingFilms.top(WINDOW, 10));
+        assertEquals(List.of(1, 2), trendingFilms.top(WEEK, 10));
+        clock.advance(Duration.ofHours(2));
+        assertEquals(List.of(), trendingFilms.top(WINDOW, 10));
+        clock.advance(WEEK);
+        assertEquals(List.of(), trendingFilms.top(WEEK, 10));
+    }
+
+    @Test
+    void deletedLikesAndFilmsShouldLowerRanking() {
+        trendingFilms.likesChanged(1, 3);
+        trendingFilms.likesChanged(2, 2);
+        trendingFilms.likesChanged(3, 1);
+        trendingFilms.likesChanged(1, -2);
+        assertEquals(List.of(2, 1, 3), trendingFilms.top(WINDOW, 10));
+        assertEquals(List.of(2, 1), trendingFilms.top(WINDOW, 2));
+        trendingFilms.filmDeleted(2);
+        assertEquals(List.of(1, 3), trendingFilms.top(WINDOW, 10));
+        trendingFilms.likesChanged(3, -1);
+        assertEquals(List.of(1), trendingFilms.top(WINDOW, 10));
+    }
+
+    @Test
+    void windowsShouldBeWholeNumbersOfBuckets() {
+        assertEquals(List.of(WINDOW, WEEK), trendingFilms.windows());
+        assertThrows(IllegalArgumentException.class,
+                () -> new TrendingFilms(clock, Duration.ofHours(1), List.of(Duration.ofMinutes(90))));
+        assertThrows(IllegalArgumentException.class, () -> trendingFilms.top(Duration.ofHours(5), 10));
+    }
+
+    static class MutableClock extends Clock {
+        private Instant instant = Instant.parse("2024-01-01T00:30:00Z");
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BufferedRelationWriterTest {
+    EmbeddedDatabase database;
+    JdbcTemplate jdbcTemplate;
+    FilmDbStorage filmStorage;
+    UserDbStorage userStorage;
+
+    @BeforeEach
+    void setUp() {
+        database = TestDatabases.create();
+        jdbcTemplate = new JdbcTemplate(database);
+        filmStorage = new FilmDbStorage(jdbcTemplate, 100);
+        userStorage = new UserDbStorage(jdbcTemplate, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void flushShouldSkipWritesOfDeletedEntitiesAndKeepTheOthers() {
+        filmStorage.create(new Film(0, "Film1", "Comedy", LocalDate.of(2020, 10, 25), 120));
+        filmStorage.addLike(1, 7);
+        filmStorage.addLike(999, 7); // the film does not exist, e.g. deleted after the like was checked
+        filmStorage.flush();
+        filmStorage.addLike(1, 8);
+        filmStorage.flush();
+
+        assertEquals(Set.of(7, 8), filmStorage.findFilmById(1).orElseThrow().getLikes());
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM likes", Integer.class));
+    }
+
+    @Test
+    void popularFilmsShouldCountPendingLikesWithoutFlushingThem() {
+        for (int i = 1; i <= 4; i++) {
+            filmStorage.create(new Film(0, "Film" + i, "Comedy", LocalDate.of(2020, 10, 25), 120));
+        }
+        filmStorage.addLikes(1, List.of(1, 2, 3));
+        filmStorage.addLikes(2, List.of(1, 2));
+        filmStorage.flush();
+        filmStorage.deleteLikes(1, List.of(1, 2)); // drops out of the top
+        filmStorage.addLikes(4, List.of(1, 2, 3)); // enters it from the bottom of the flushed ranking
+
+        assertEquals(List.of(4, 2), filmStorage.findPopularFilms(2).stream()
+                .map(Film::getId)
+                .collect(Collectors.toList()));
+        assertEquals(5, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM likes", Integer.class));
+    }
+
+    @Test
+    void flushShouldSkipFriendshipsOfUsersDeletedBehindTheBuffer() {
+        for (int i = 1; i <= 3; i++) {
+            userStorage.create(new User(0, "email" + i + "@gmail.com", "user" + i, "Jane", LocalDate.of(1990, 12, 10)));
+        }
+        userStorage.addFriend(1, 2);
+        userStorage.addFriend(1, 3);
+        jdbcTemplate.update("DELETE FROM users WHERE id = 3");
+        userStorage.flush();
+
+        assertEquals(Set.of(2), userStorage.findUserById(1).orElseThrow().getFriends());
+        assertEquals(Set.of(1), userStorage.findUserById(2).orElseThrow().getFriends());
+    }
+
+    @Test
+    void deletingFilmShouldKeepPendingLikesOfUserWithTheSameId() {
+        filmStorage.create(new Film(0, "Film1", "Comedy", LocalDate.of(2020, 10, 25), 120));
+        filmStorage.create(new Film(0, "Film2", "Horror", LocalDate.of(2020, 10, 25), 100));
+        filmStorage.addLike(2, 1);
+        filmStorage.delete(filmStorage.findFilmById(1).orElseThrow());
+        filmStorage.flush();
+
+        assertEquals(Set.of(1), filmStorage.findFilmById(2).orElseThrow().getLikes());
+    }
+}
@@ -0,0 +1,146 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryStorageStressTest {
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 2_000;
+
+    InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+    InMemoryUserStorage userStorage = new InMemoryUserStorage();
+    FilmService filmService = new FilmService(filmStorage);
+    UserService userService = new UserService(userStorage);
+
+    @Test
+    void concurrentCreatesShouldAllocateUniqueIds() throws Exception {
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                filmService.createFilm(new Film(0, "Film", "Comedy", LocalDate.of(2020, 10, 25), 120));
+                userService.createUser(new User(0, "email" + thread + "-" + i + "@gmail.com", "user", "Jane", LocalDate.of(1990, 12, 10)));
+            }
+        });
+        Set<Integer> expectedIds = IntStream.rangeClosed(1, THREADS * OPERATIONS_PER_THREAD)
+                .boxed()
+                .collect(Collectors.toSet());
+        assertEquals(expectedIds, filmStorage.findAll().stream().map(Film::getId).collect(Collectors.toSet()));
+        assertEquals(expectedIds, userStorage.findAll().stream().map(User::getId).collect(Collectors.toSet()));
+    }
+
+    @Test
+    void concurrentLikesShouldNotBeLost() throws Exception {
+        int filmCount = 5;
+        for (int i = 0; i < filmCount; i++) {
+            filmService.createFilm(new Film(0, "Film" + i, "Comedy", LocalDate.of(2020, 10, 25), 120));
+        }
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                int filmId = 1 + i % filmCount;
+                int userId = thread * OPERATIONS_PER_THREAD + i;
+                filmService.addLike(filmId, userId);
+                if (userId % 2 == 1) {
+                    filmService.deleteLike(filmId, userId);
+                }
+            }
+        });
+        int expectedLikes = THREADS * OPERATIONS_PER_THREAD / filmCount / 2;
+        for (Film film : filmStorage.findAll()) {
+            assertEquals(expectedLikes, film.getLikes().size());
+        }
+        List<Film> popular = filmStorage.findPopularFilms(filmCount);
+        assertEquals(filmCount, popular.size());
+        assertEquals(List.of(1, 2, 3, 4, 5), popular.stream().map(Film::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    void concurrentFriendOperationsShouldNotBeLost() throws Exception {
+        int userCount = 1 + THREADS * 50;
+        for (int i = 0; i < userCount; i++) {
+            userService.createUser(new User(0, "email" + i + "@gmail.com", "user" + i, "Jane", LocalDate.of(1990, 12, 10)));
+        }
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                int friendId = 2 + thread * 50 + i % 50;
+                userService.addNewFriend(1, friendId);
+                if (friendId % 2 == 1) {
+                    userService.deleteFriend(1, friendId);
+                }
+            }
+        });
+        User user = userService.getUserById(1);
+        assertEquals(THREADS * 25, user.getFriends().size());
+        for (int friendId = 2; friendId <= userCount; friendId++) {
+            User friend = userService.getUserById(friendId);
+            assertEquals(friendId % 2 == 0, user.getFriends().contains(friendId));
+            assertEquals(friendId % 2 == 0, friend.getFriends().contains(1));
+        }
+    }
+
+    @Test
+    void concurrentFriendOperationsOnSamePairsShouldKeepGraphSymmetric() throws Exception {
+        int userCount = 10;
+        for (int i = 0; i < userCount; i++) {
+            userService.createUser(new User(0, "email" + i + "@gmail.com", "user" + i, "Jane", LocalDate.of(1990, 12, 10)));
+        }
+        runConcurrently(thread -> {
+            Random random = new Random(thread);
+            for (int i = 0; i < OPERATIONS_PER_THREAD * 5; i++) {
+                int userId = 1 + random.nextInt(userCount);
+                int friendId = 1 + random.nextInt(userCount);
+                if (userId == friendId) {
+                    continue;
+                }
+                if (random.nextBoolean()) {
+                    userService.addNewFriend(userId, friendId);
+                } else {
+                    userService.deleteFriend(userId, friendId);
+                }
+            }
+        });
+        for (User user : userStorage.findAll()) {
+            for (User other : userStorage.findAll()) {
+                assertEquals(user.getFriends().contains(other.getId()), other.getFriends().contains(user.getId()),
+                        "friendship between " + user.getId() + " and " + other.getId() + " is not symmetric");
+            }
+        }
+    }
+
+    private void runConcurrently(ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            int threadNumber = thread;
+            futures.add(executor.submit(() -> {
+                start.await();
+                task.run(threadNumber);
+                return null;
+            }));
+        }
+        start.countDown();
+        try {
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface ThreadTask {
+        void run(int thread);
+    }
+}
@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+public final class TestDatabases {
+
+    private TestDatabases() {
+    }
+
+    /**
+     * @return fresh in-memory H2 database with the application schema; shut it down after the test
+     */
+    public static EmbeddedDatabase create() {
+        return new EmbeddedDatabaseBuilder()
+                .generateUniqueName(true)
+                .setType(EmbeddedDatabaseType.H2)
+                .addScript("schema.sql")
+                .build();
+    }
+}
@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CachingFilmStorageTest {
+    FilmStorage delegate = spy(new InMemoryFilmStorage());
+    Cache<Integer, Film> cache = Caffeine.newBuilder()
+            .maximumSize(2)
+            .executor(Runnable::run)
+            .recordStats()
+            .build();
+    CachingFilmStorage filmStorage = new CachingFilmStorage(delegate, cache);
+
+    @Test
+    void findFilmByIdShouldReadThroughOnce() {
+        Film film = filmStorage.create(new Film(0, "Film1", "Comedy", LocalDate.of(2020, 10, 25), 120));
+        assertEquals(film, filmStorage.findFilmById(film.getId()).orElseThrow());
+        assertEquals(film, filmStorage.findFilmById(film.getId()).orElseThrow());
+        verify(delegate, times(1)).findFilmById(film.getId());
+        assertEquals(1, cache.stats().hitCount());
+        assertEquals(1, cache.stats().missCount());
+    }
+
+    @Test
+    void findFilmByIdShouldNotCacheMissingFilms() {
+        assertTrue(filmStorage.findFilmById(42).isEmpty());
+        Film film = filmStorage.create(new Film(0, "Film1", "Comedy", LocalDate.of(2020, 10, 25), 120));
+        assertEquals(film, filmStorage.findFilmById(film.getId()).orElseThrow());
+    }
+
+    @Test
+    void changesShouldInvalidateCachedFilm() {
+        Film film = filmStorage.create(new Film(0, "Film1", "Comedy", LocalDate.of(2020, 10, 25), 120));
+        filmStorage.findFilmById(film.getId());
+        filmStorage.addLike(film.getId(), 5);
+        filmStorage.findFilmById(film.getId());
+        filmStorage.update(new Film(film.getId(), "Film1", "Drama", LocalDate.of(2020, 10, 25), 120));
+        assertEquals("Drama", filmStorage.findFilmById(film.getId()).orElseThrow().getDescription());
+        filmStorage.delete(film);
+        assertTrue(filmStorage.findFilmById(film.getId()).isEmpty());
+        verify(delegate, times(4)).findFilmById(film.getId());
+    }
+
+    @Test
+    void cacheShouldEvictWhenFull() {
+        for (int i = 0; i < 10; i++) {
+            Film film = filmStorage.create(new Film(0, "Film" + i, "Comedy", LocalDate.of(2020, 10, 25), 120));
+            filmStorage.findFilmById(film.getId());
+        }
+        cache.cleanUp();
+        assertEquals(2, cache.estimatedSize());
+        assertEquals(8, cache.stats().evictionCount());
+    }
+}
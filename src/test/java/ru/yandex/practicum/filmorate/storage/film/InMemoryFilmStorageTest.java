@@ -0,0 +1,199 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryFilmStorageTest {
+    InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+
+    @Test
+    void findPopularFilmsShouldOrderByLikesThenById() {
+        Film film1 = filmStorage.create(new Film(0, "Film1", "Comedy", LocalDate.of(2020, 10, 25), 120));
+        Film film2 = filmStorage.create(new Film(0, "Film2", "Horror", LocalDate.of(2020, 10, 25), 100));
+        Film film3 = filmStorage.create(new Film(0, "Film3", "Drama", LocalDate.of(2020, 10, 25), 90));
+        filmStorage.addLike(film3.getId(), 1);
+        assertEquals(List.of(film3, film1, film2), filmStorage.findPopularFilms(10));
+        filmStorage.deleteLike(film3.getId(), 1);
+        assertEquals(List.of(film1, film2), filmStorage.findPopularFilms(2));
+    }
+
+    @Test
+    void tryCreateShouldFailIfIdWasTaken() {
+        int id = filmStorage.nextId();
+        filmStorage.create(new Film(0, "Film1", "Comedy", LocalDate.of(2020, 10, 25), 120));
+        Film film2 = new Film(0, "Film2", "Horror", LocalDate.of(2020, 10, 25), 100);
+
+        assertFalse(filmStorage.tryCreate(film2, id));
+        assertTrue(filmStorage.tryCreate(film2, filmStorage.nextId()));
+        assertEquals(id + 1, film2.getId());
+        assertEquals(List.of(film2), filmStorage.findPopularFilms(10).subList(1, 2));
+    }
+
+    @Test
+    void findPopularFilmsShouldNotReturnDeletedFilms() {
+        Film film1 = filmStorage.create(new Film(0, "Film1", "Comedy", LocalDate.of(2020, 10, 25), 120));
+        Film film2 = filmStorage.create(new Film(0, "Film2", "Horror", LocalDate.of(2020, 10, 25), 100));
+        filmStorage.addLike(film1.getId(), 1);
+        filmStorage.delete(film1);
+        assertEquals(List.of(film2), filmStorage.findPopularFilms(10));
+    }
+
+    @Test
+    void restoredFilmsShouldBeRankedBeforeAndAfterIndexIsBuilt() {
+        Film film1 = new Film(1, "Film1", "Comedy", LocalDate.of(2020, 10, 25), 120);
+        Film film5 = new Film(5, "Film5", "Horror", LocalDate.of(2020, 10, 25), 100);
+        film5.addLike(1);
+        filmStorage.restore(film1);
+        filmStorage.restore(film5);
+        assertEquals(List.of(film5, film1), filmStorage.findPopularFilms(10));
+        filmStorage.addLike(film1.getId(), 1);
+        filmStorage.addLike(film1.getId(), 2);
+        filmStorage.buildPopularityIndex();
+        assertEquals(List.of(film1, film5), filmStorage.findPopularFilms(10));
+        assertEquals(6, filmStorage.create(new Film(0, "Film6", "Drama", LocalDate.of(2020, 10, 25), 90)).getId());
+    }
+
+    @Test
+    void filmUpdatedWhileIndexIsBuiltShouldBeRanked() {
+        Film updated = new Film(2, "Film2", "Horror", LocalDate.of(2020, 10, 25), 100);
+        updated.addLike(1);
+        updated.addLike(2);
+        FilmPopularityIndex ranking = new FilmPopularityIndex();
+        filmStorage = new InMemoryFilmStorage(new FilmRanking() {
+            @Override
+            public void put(Film film, int likesDelta) {
+                if (film.getId() == 1 && filmStorage.findFilmById(2).orElseThrow() != updated) {
+                    filmStorage.update(updated); // after the build has read the film it replaces
+                }
+                ranking.put(film, likesDelta);
+            }
+
+            @Override
+            public void remove(Film film) {
+                ranking.remove(film);
+            }
+
+            @Override
+            public List<Film> top(int count) {
+                return ranking.top(count);
+            }
+
+            @Override
+            public void clear() {
+                ranking.clear();
+            }
+        });
+        Film film1 = new Film(1, "Film1", "Comedy", LocalDate.of(2020, 10, 25), 120);
+        film1.addLike(1);
+        filmStorage.restore(film1);
+        filmStorage.restore(new Film(2, "Film2", "Horror", LocalDate.of(2020, 10, 25), 100));
+        filmStorage.buildPopularityIndex();
+
+        assertEquals(List.of(updated, film1), filmStorage.findPopularFilms(10));
+    }
+
+    @Test
+    void findPopularFilmsShouldMatchFullSortOnRandomWorkload() {
+        Random random = new Random(42);
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            ids.add(filmStorage.create(new Film(0, "Film" + i, "Description", LocalDate.of(2020, 1, 1), 100)).getId());
+        }
+        for (int step = 0; step < 20_000; step++) {
+            int filmId = ids.get(random.nextInt(ids.size()));
+            int userId = random.nextInt(50);
+            int operation = random.nextInt(100);
+            if (operation < 60) {
+                filmStorage.addLike(filmId, userId);
+            } else if (operation < 90) {
+                filmStorage.deleteLike(filmId, userId);
+            } else if (operation < 95) {
+                Film film = filmStorage.findFilmById(filmId).orElseThrow();
+                Film updated = new Film(filmId, film.getName(), "Updated", film.getReleaseDate(), film.getDuration());
+                film.getLikes().stream().limit(random.nextInt(5)).forEach(updated::addLike);
+                filmStorage.update(updated);
+            } else if (ids.size() > 1) {
+                filmStorage.delete(filmStorage.findFilmById(filmId).orElseThrow());
+                ids.remove(Integer.valueOf(filmId));
+            }
+            if (step % 100 == 0) {
+                int count = 1 + random.nextInt(30);
+                assertEquals(sortedByLikes(count), filmStorage.findPopularFilms(count));
+            }
+        }
+        assertEquals(sortedByLikes(ids.size()), filmStorage.findPopularFilms(ids.size()));
+    }
+
+    @Test
+    void rangeQueriesShouldFollowUpdatesAndDeletes() {
+        Film film1 = filmStorage.create(new Film(0, "Film1", "Comedy", LocalDate.of(2001, 1, 1), 90));
+        Film film2 = filmStorage.create(new Film(0, "Film2", "Horror", LocalDate.of(2002, 1, 1), 120));
+        Film restored = new Film(7, "Film7", "Drama", LocalDate.of(2001, 6, 1), 100);
+        filmStorage.restore(restored);
+        assertEquals(List.of(film1, restored, film2),
+                filmStorage.findByReleaseDate(LocalDate.of(2001, 1, 1), LocalDate.of(2002, 1, 1)));
+        Film updated = filmStorage.update(new Film(film1.getId(), "Film1", "Comedy", LocalDate.of(2003, 1, 1), 130));
+        filmStorage.delete(film2);
+        assertEquals(List.of(restored), filmStorage.findByReleaseDate(LocalDate.of(2001, 1, 1), LocalDate.of(2002, 1, 1)));
+        assertEquals(List.of(restored, updated), filmStorage.findByDuration(0, 200));
+        assertEquals(List.of(), filmStorage.findByDuration(200, 100));
+    }
+
+    @Test
+    void approximateRankingShouldFindMostLikedFilmsOfSkewedWorkload() {
+        filmStorage = new InMemoryFilmStorage(new HeavyHittersRanking(0.001, 0.001, 50));
+        Random random = new Random(42);
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            ids.add(filmStorage.create(new Film(0, "Film" + i, "Description", LocalDate.of(2020, 1, 1), 100)).getId());
+        }
+        for (int step = 0; step < 50_000; step++) {
+            int filmId = ids.get((int) Math.pow(ids.size(), random.nextDouble())); // skewed towards first films
+            if (random.nextInt(10) == 0) {
+                filmStorage.deleteLike(filmId, random.nextInt(1_000));
+            } else {
+                filmStorage.addLike(filmId, random.nextInt(1_000));
+            }
+        }
+        assertEquals(sortedByLikes(10).stream().map(Film::getId).collect(Collectors.toSet()),
+                filmStorage.findPopularFilms(10).stream().map(Film::getId).collect(Collectors.toSet()));
+        assertEquals(50, filmStorage.findPopularFilms(100).size());
+    }
+
+    @Test
+    void approximateRankingShouldCountRestoredLikesOnce() {
+        filmStorage = new InMemoryFilmStorage(new HeavyHittersRanking(0.001, 0.001, 2));
+        Film film1 = new Film(1, "Film1", "Comedy", LocalDate.of(2020, 10, 25), 120);
+        Film film2 = new Film(2, "Film2", "Horror", LocalDate.of(2020, 10, 25), 100);
+        Film film3 = new Film(3, "Film3", "Drama", LocalDate.of(2020, 10, 25), 90);
+        film1.addLike(1);
+        film2.addLike(1);
+        film2.addLike(2);
+        filmStorage.restore(film1);
+        filmStorage.restore(film2);
+        filmStorage.restore(film3);
+        filmStorage.addLike(film1.getId(), 2);
+        filmStorage.addLike(film1.getId(), 3);
+        filmStorage.buildPopularityIndex();
+        assertEquals(List.of(film1, film2), filmStorage.findPopularFilms(10));
+        filmStorage.addLike(film3.getId(), 1);
+        filmStorage.addLike(film3.getId(), 2);
+        filmStorage.addLike(film3.getId(), 3);
+        filmStorage.addLike(film3.getId(), 4);
+        assertEquals(List.of(film3, film1), filmStorage.findPopularFilms(10));
+    }
+
+    private List<Film> sortedByLikes(int count) {
+        return filmStorage.findAll().stream()
+                .sorted(Comparator.comparingInt(Film::getId))
+                .sorted(Comparator.comparingInt((Film film) -> film.getLikes().size()).reversed())
+                .limit(count)
+                .collect(Collectors.toList());
+    }
+}
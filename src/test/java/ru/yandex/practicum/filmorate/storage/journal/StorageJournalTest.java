@@ -0,0 +1,195 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StorageJournalTest {
+    @TempDir
+    Path directory;
+
+    InMemoryFilmStorage films;
+    InMemoryUserStorage users;
+    StorageJournal journal;
+    JournalingFilmStorage filmStorage;
+    JournalingUserStorage userStorage;
+
+    /**
+     * Starts from what is on the disk, as after a restart; the previous journal is abandoned without closing,
+     * like after a crash.
+     */
+    void open() throws IOException {
+        films = new InMemoryFilmStorage();
+        users = new InMemoryUserStorage();
+        journal = new StorageJournal(directory, films, users, FsyncPolicy.ALWAYS, Duration.ofMinutes(10), 1 << 20,
+                false);
+        journal.recover();
+        filmStorage = new JournalingFilmStorage(films, journal);
+        userStorage = new JournalingUserStorage(users, journal);
+    }
+
+    @Test
+    void changesShouldBeReplayedFromLog() throws IOException {
+        open();
+        createData();
+        open();
+        assertRecovered();
+    }
+
+    @Test
+    void changesShouldBeRecoveredFromSnapshotAndLogTail() throws IOException {
+        open();
+        filmStorage.create(new Film(0, "Film1", "Comedy", LocalDate.of(2020, 10, 25), 120));
+        filmStorage.addLike(1, 7);
+        journal.snapshot();
+        createData();
+        open();
+        assertRecovered();
+        assertEquals(List.of("snapshot-0000000002.bin"), files("snapshot"));
+    }
+
+    @Test
+    void closeShouldLeaveOnlySnapshotToLoad() throws IOException {
+        open();
+        createData();
+        journal.close();
+        open();
+        assertRecovered();
+        assertEquals(1, files("snapshot").size());
+    }
+
+    @Test
+    void recoveryShouldStopAtTornRecord() throws IOException {
+        open();
+        filmStorage.create(new Film(0, "Film1", "Comedy", LocalDate.of(2020, 10, 25), 120));
+        filmStorage.addLike(1, 5);
+        filmStorage.addLike(1, 6);
+        Path log = directory.resolve(files("log").get(0));
+        long lastRecord = 0;
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(4);
+            for (long position = 0; ; position += 8 + header.getInt(0)) {
+                header.clear();
+                channel.read(header, position);
+                if (header.getInt(0) == 0) {
+                    break;
+                }
+                lastRecord = position;
+            }
+            channel.write(ByteBuffer.wrap(new byte[]{42}), lastRecord + 12); // corrupt the last like
+        }
+        open();
+        assertEquals(Set.of(5), films.findFilmById(1).orElseThrow().getLikes());
+    }
+
+    private void createData() {
+        Film film1 = filmStorage.findFilmById(1)
+                .orElseGet(() -> filmStorage.create(new Film(0, "Film1", "Comedy", LocalDate.of(2020, 10, 25), 120)));
+        filmStorage.create(new Film(0, "Film2", "Хоррор", LocalDate.of(2020, 10, 25), 100));
+        filmStorage.create(new Film(0, "Film3", null, LocalDate.of(1999, 1, 1), 90));
+        filmStorage.addLikes(film1.getId(), List.of(1, 2, 3));
+        filmStorage.deleteLike(film1.getId(), 7);
+        filmStorage.deleteLikes(film1.getId(), List.of(2));
+        filmStorage.update(new Film(2, "Film2 updated", "Horror", LocalDate.of(2021, 1, 1), 101));
+        filmStorage.addLike(2, 9);
+        filmStorage.delete(filmStorage.findFilmById(3).orElseThrow());
+        for (int i = 1; i <= 3; i++) {
+            userStorage.create(new User(0, "email" + i + "@gmail.com", "user" + i, "Jane", LocalDate.of(1990, 12, 10)));
+        }
+        userStorage.addFriends(1, List.of(2, 3));
+        userStorage.deleteFriend(1, 3);
+        userStorage.update(new User(2, "new@gmail.com", "user2", "Kate", LocalDate.of(1990, 12, 10)));
+        userStorage.addFriend(2, 1);
+    }
+
+    @Test
+    void emailPassedBetweenUsersShouldBeRecoveredWhateverOrderItWasLoggedIn() throws IOException {
+        open();
+        userStorage.create(new User(0, "x@gmail.com", "login1", "Name1", LocalDate.of(2000, 1, 1)));
+        userStorage.create(new User(0, "z@gmail.com", "login2", "Name2", LocalDate.of(2000, 1, 1)));
+        // user 1 gives the email up before user 2 takes it, but the records of different users may be logged
+        // in either order
+        User user1 = new User(1, "y@gmail.com", "login1", "Name1", LocalDate.of(2000, 1, 1));
+        User user2 = new User(2, "x@gmail.com", "login2", "Name2", LocalDate.of(2000, 1, 1));
+        users.update(user1);
+        users.update(user2);
+        journal.commit(journal.userUpdated(user2));
+        journal.commit(journal.userUpdated(user1));
+
+        open();
+        assertEquals("y@gmail.com", users.findUserById(1).orElseThrow().getEmail());
+        assertEquals("x@gmail.com", users.findUserById(2).orElseThrow().getEmail());
+        assertEquals(2, users.findByEmail("x@gmail.com").orElseThrow().getId());
+        assertEquals(1, users.findByEmail("y@gmail.com").orElseThrow().getId());
+        assertTrue(users.findByEmail("z@gmail.com").isEmpty());
+    }
+
+    @Test
+    void mappedReaderShouldReadValuesCrossingRegions() throws IOException {
+        BinaryWriter writer = new BinaryWriter(16);
+        writer.putByte(7);
+        writer.putInt(42);
+        writer.putLong(Long.MAX_VALUE);
+        writer.putString("snapshot");
+        writer.putDate(LocalDate.of(1895, 12, 28));
+        Path file = directory.resolve("values");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            writer.writeTo(channel);
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            BinaryReader reader = BinaryReader.mapped(channel, 3);
+            assertEquals(7, reader.getByte());
+            assertEquals(42, reader.getInt());
+            assertEquals(Long.MAX_VALUE, reader.getLong());
+            assertEquals("snapshot", reader.getString());
+            assertEquals(LocalDate.of(1895, 12, 28), reader.getDate());
+            assertFalse(reader.request(1));
+        }
+    }
+
+    private void assertRecovered() {
+        assertEquals(List.of(1, 2), films.findAll().stream().map(Film::getId).collect(Collectors.toList()));
+        assertEquals(Set.of(1, 3), films.findFilmById(1).orElseThrow().getLikes());
+        Film film2 = films.findFilmById(2).orElseThrow();
+        assertEquals("Film2 updated", film2.getName());
+        assertEquals(LocalDate.of(2021, 1, 1), film2.getReleaseDate());
+        assertEquals(Set.of(9), film2.getLikes());
+        assertEquals(List.of(films.findFilmById(1).orElseThrow()), films.findPopularFilms(1));
+        assertEquals(4, filmStorage.create(new Film(0, "Film4", "Drama", LocalDate.of(2020, 10, 25), 80)).getId());
+
+        assertEquals(3, users.findAll().size());
+        assertEquals(Set.of(2), users.findUserById(1).orElseThrow().getFriends());
+        User user2 = users.findUserById(2).orElseThrow();
+        assertEquals("new@gmail.com", user2.getEmail());
+        assertEquals(Set.of(1), user2.getFriends());
+        assertEquals(Set.of(), users.findUserById(3).orElseThrow().getFriends());
+    }
+
+    private List<String> files(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryUserStorageTest {
+    InMemoryUserStorage userStorage = new InMemoryUserStorage();
+
+    @Test
+    void restoredUsersSharingEmailShouldLeaveItToLowestId() {
+        userStorage.restore(new User(2, "email@gmail.com", "user2", "Jane", LocalDate.of(1990, 12, 10)));
+        userStorage.restore(new User(1, "email@gmail.com", "user1", "Kate", LocalDate.of(1990, 12, 10)));
+        userStorage.restore(new User(3, "email@gmail.com", "user3", "Lukas", LocalDate.of(1990, 12, 10)));
+        assertEquals(1, userStorage.findByEmail("email@gmail.com").orElseThrow().getId());
+
+        userStorage.reindexEmails();
+        assertEquals(1, userStorage.findByEmail("email@gmail.com").orElseThrow().getId());
+    }
+}
@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CountMinSketchTest {
+
+    @Test
+    void estimatesShouldStayWithinErrorBoundOfTrueCounts() {
+        CountMinSketch sketch = new CountMinSketch(0.001, 0.001);
+        Random random = new Random(42);
+        Map<Integer, Long> counts = new HashMap<>();
+        int total = 200_000;
+        for (int i = 0; i < total; i++) {
+            int key = (int) Math.pow(100_000, random.nextDouble()); // skewed towards small keys
+            counts.merge(key, 1L, Long::sum);
+            sketch.add(key, 1);
+        }
+        long bound = (long) Math.ceil(0.001 * total);
+        counts.forEach((key, count) -> {
+            long estimate = sketch.estimate(key);
+            assertTrue(estimate >= count, "estimate below true count of " + key);
+            assertTrue(estimate - count <= bound, "estimate too far from true count of " + key);
+        });
+    }
+
+    @Test
+    void negativeDeltasShouldTakeCountsBack() {
+        CountMinSketch sketch = new CountMinSketch(0.01, 0.01);
+        assertEquals(3, sketch.add(7, 3));
+        assertEquals(1, sketch.add(7, -2));
+        assertEquals(1, sketch.estimate(7));
+        sketch.clear();
+        assertEquals(0, sketch.estimate(7));
+        assertEquals(272, sketch.width());
+        assertEquals(5, sketch.depth());
+        assertThrows(IllegalArgumentException.class, () -> new CountMinSketch(0, 0.01));
+    }
+}
@@ -0,0 +1,119 @@
+package ru.yandex.practicum.filmorate.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntSetTest {
+    ObjectMapper objectMapper = new ObjectMapper()
+            .findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @Test
+    void shouldBehaveLikeHashSetOnRandomWorkload() {
+        Random random = new Random(42);
+        IntSet intSet = new IntSet();
+        Set<Integer> hashSet = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            int value = random.nextInt(500) - 100;
+            if (random.nextInt(3) == 0) {
+                assertEquals(hashSet.remove(value), intSet.remove(value));
+            } else {
+                assertEquals(hashSet.add(value), intSet.add(value));
+            }
+            assertEquals(hashSet.size(), intSet.size());
+        }
+        assertEquals(hashSet, intSet);
+        assertEquals(new TreeSet<>(hashSet), new TreeSet<>(intSet));
+        assertArrayEquals(hashSet.stream().sorted().mapToInt(Integer::intValue).toArray(), intSet.toIntArray());
+    }
+
+    @Test
+    void sampleShouldReturnDistinctElementsOfTheSet() {
+        IntSet intSet = new IntSet();
+        for (int i = 0; i < 1000; i++) {
+            intSet.add(i * 3);
+        }
+        assertArrayEquals(intSet.toIntArray(), intSet.sample(1000, 7));
+        int[] sample = intSet.sample(100, 7);
+        assertEquals(100, sample.length);
+        assertEquals(100, Arrays.stream(sample).distinct().count());
+        assertTrue(Arrays.stream(sample).allMatch(intSet::contains));
+        assertArrayEquals(sample, intSet.sample(100, 7));
+    }
+
+    @Test
+    void pageShouldReturnSmallestElementsAfterTheGivenOne() {
+        IntSet intSet = new IntSet();
+        for (int value : new int[]{40, 10, 30, 20, 50}) {
+            intSet.add(value);
+        }
+        assertArrayEquals(new int[]{10, 20}, intSet.page(Integer.MIN_VALUE, 2));
+        assertArrayEquals(new int[]{30, 40}, intSet.page(20, 2));
+        assertArrayEquals(new int[]{30, 40, 50}, intSet.page(25, 10));
+        assertArrayEquals(new int[0], intSet.page(50, 2));
+    }
+
+    @Test
+    void iteratorShouldIterateInAscendingOrder() {
+        IntSet intSet = new IntSet();
+        intSet.addAll(List.of(5, 1, 3));
+        assertEquals(List.of(1, 3, 5), new ArrayList<>(intSet));
+    }
+
+    @Test
+    void iteratorShouldNotFailOnConcurrentModification() {
+        IntSet intSet = new IntSet();
+        intSet.addAll(List.of(1, 2, 3));
+        Iterator<Integer> iterator = intSet.iterator();
+        intSet.add(4);
+        intSet.remove(1);
+        List<Integer> iterated = new ArrayList<>();
+        iterator.forEachRemaining(iterated::add);
+        assertEquals(List.of(1, 2, 3), iterated);
+    }
+
+    @Test
+    void intersectionShouldMatchRetainAll() {
+        Random random = new Random(42);
+        IntSet[] sets = new IntSet[4];
+        Set<Integer> expected = null;
+        for (int i = 0; i < sets.length; i++) {
+            sets[i] = new IntSet();
+            for (int j = 0; j < 200 * (i + 1); j++) {
+                sets[i].add(random.nextInt(1_000));
+            }
+            if (expected == null) {
+                expected = new HashSet<>(sets[i]);
+            } else {
+                expected.retainAll(sets[i]);
+            }
+        }
+        assertEquals(expected, IntSet.intersection(sets));
+        assertEquals(Set.of(), IntSet.intersection(sets[0], new IntSet()));
+    }
+
+    @Test
+    void filmShouldBeSerializedWithLikesAsJsonArray() throws Exception {
+        Film film = new Film(1, "Film1", "Comedy", LocalDate.of(2020, 10, 25), 120);
+        film.addLike(5);
+        film.addLike(2);
+        assertEquals("{\"id\":1,\"name\":\"Film1\",\"description\":\"Comedy\",\"releaseDate\":\"2020-10-25\","
+                + "\"duration\":120,\"likes\":[2,5]}", objectMapper.writeValueAsString(film));
+    }
+
+    @Test
+    void userShouldBeSerializedWithFriendsAsJsonArray() throws Exception {
+        User user = new User(1, "email@gmail.com", "user", "Jane", LocalDate.of(1990, 12, 10));
+        user.addFriend(3);
+        assertEquals("{\"id\":1,\"email\":\"email@gmail.com\",\"login\":\"user\",\"name\":\"Jane\","
+                + "\"birthday\":\"1990-12-10\",\"friends\":[3]}", objectMapper.writeValueAsString(user));
+    }
+}